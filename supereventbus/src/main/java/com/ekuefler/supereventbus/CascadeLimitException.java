@@ -0,0 +1,32 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+/**
+ * An exception passed to exception handlers when a cascade of events exceeds the limits configured
+ * via {@link EventBus#setCascadeLimits}. The cause of this exception is an
+ * {@link IllegalStateException} whose message describes the cascade, including the cycle of event
+ * classes responsible if there is one. The event of this exception is the event that was rejected,
+ * and its source is the object whose handler posted it, or <code>null</code> if it was posted from
+ * outside of a handler. This exception is reported once each time the limits are exceeded, after
+ * which the waiting handler invocations for the rest of the rejected event's cascade have been
+ * discarded.
+ *
+ * @author ekuefler@gmail.com (Erik Kuefler)
+ */
+public class CascadeLimitException extends EventBusException {
+  CascadeLimitException(Exception cause, Object source, DispatchContext context) {
+    super(cause, source, context);
+  }
+}
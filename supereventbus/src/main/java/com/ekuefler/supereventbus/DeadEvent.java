@@ -19,7 +19,8 @@ package com.ekuefler.supereventbus;
  * misconfiguration issues. Note that if an event had a handler registered for it that was bypassed
  * due to an {@link com.ekuefler.supereventbus.filtering.EventFilter}, a {@link DeadEvent} will NOT
  * be fired. Also note that if the application registers a handler for {@link Object}, all events
- * will be handled, and so {@link DeadEvent} will never be fired.
+ * will be handled, and so {@link DeadEvent} will never be fired. Whether and how often
+ * {@link DeadEvent}s are fired can be configured via {@link EventBus#setDeadEventPolicy}.
  *
  * @author ekuefler@gmail.com (Erik Kuefler)
  */
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+/**
+ * Determines what an {@link EventBus} does when an event is posted that has no handlers. By
+ * default, every such event is wrapped in a {@link DeadEvent} and posted, which is useful during
+ * development but wasteful in applications that intentionally post many events that nothing is
+ * listening for. A different policy can be installed via {@link EventBus#setDeadEventPolicy}.
+ *
+ * @author ekuefler@gmail.com (Erik Kuefler)
+ */
+public final class DeadEventPolicy {
+
+  enum Mode {
+    POST,
+    DISABLED,
+    AGGREGATE
+  }
+
+  /** Posts a {@link DeadEvent} for every event without handlers. This is the default policy. */
+  public static final DeadEventPolicy POST_ALL = new DeadEventPolicy(Mode.POST, 1);
+
+  /** Ignores events without handlers entirely. */
+  public static final DeadEventPolicy DISABLED = new DeadEventPolicy(Mode.DISABLED, 0);
+
+  /**
+   * Doesn't post {@link DeadEvent}s, but instead counts events without handlers by class. The
+   * counts can be retrieved and reset via {@link EventBus#drainDeadEventCounts}, for example to be
+   * logged periodically.
+   */
+  public static final DeadEventPolicy AGGREGATED = new DeadEventPolicy(Mode.AGGREGATE, 0);
+
+  /**
+   * Returns a policy that posts a {@link DeadEvent} for only one out of every <code>n</code>
+   * events without handlers, ignoring the rest.
+   *
+   * @param n sampling rate, which must be positive
+   */
+  public static DeadEventPolicy sampled(int n) {
+    if (n <= 0) {
+      throw new IllegalArgumentException("Sampling rate must be positive: " + n);
+    }
+    return new DeadEventPolicy(Mode.POST, n);
+  }
+
+  private final Mode mode;
+  private final int sampleRate;
+
+  private DeadEventPolicy(Mode mode, int sampleRate) {
+    this.mode = mode;
+    this.sampleRate = sampleRate;
+  }
+
+  Mode getMode() {
+    return mode;
+  }
+
+  /** For {@link Mode#POST}, the number of events without handlers per posted DeadEvent. */
+  int getSampleRate() {
+    return sampleRate;
+  }
+}
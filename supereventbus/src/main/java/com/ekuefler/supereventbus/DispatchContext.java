@@ -0,0 +1,116 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+/**
+ * Information about an event that is currently being dispatched by an {@link EventBus}. A handler
+ * can get the context of the event it is handling via {@link EventBus#getCurrentDispatch}.
+ * <p>
+ * The main use of the context is to let a handler consume the event it is handling, which prevents
+ * the event from being delivered to any handlers that have not yet seen it. For example, a modal
+ * dialog could handle keyboard events at a high priority and consume them so that handlers in the
+ * rest of the application never see them:
+ *
+ * <pre>
+ * &#064;Subscribe &#064;WithPriority(100)
+ * void onKeyPressed(KeyPressedEvent event) {
+ *   if (isShowing()) {
+ *     handleKey(event);
+ *     eventBus.getCurrentDispatch().consume();
+ *   }
+ * }
+ * </pre>
+ *
+ * Since handlers are invoked in order of their
+ * {@link com.ekuefler.supereventbus.priority.WithPriority priority}, consuming an event skips all
+ * handlers with lower priorities. The order of handlers with the same priority is undefined, so
+ * consuming an event may or may not skip other handlers with the same priority as the consuming
+ * handler.
+ *
+ * @author ekuefler@gmail.com (Erik Kuefler)
+ */
+public class DispatchContext {
+
+  private final Object event;
+  private final int id;
+  private final DispatchContext parent;
+  private final int depth;
+  private boolean consumed;
+
+  DispatchContext(Object event, int id, DispatchContext parent, int depth) {
+    this.event = event;
+    this.id = id;
+    this.parent = parent;
+    this.depth = depth;
+  }
+
+  /** Returns the event being dispatched. */
+  public Object getEvent() {
+    return event;
+  }
+
+  /**
+   * Returns a number identifying this event, which increases with each event posted on the event
+   * bus. Always returns zero unless causality tracking is enabled via
+   * {@link EventBus#setCausalityTracking}.
+   */
+  public int getId() {
+    return id;
+  }
+
+  /**
+   * Returns the context of the event whose handler posted this event, or <code>null</code> if this
+   * event was posted from outside of a handler. Always returns <code>null</code> unless causality
+   * tracking is enabled via {@link EventBus#setCausalityTracking} or cascade limits are set via
+   * {@link EventBus#setCascadeLimits}.
+   */
+  public DispatchContext getParent() {
+    return parent;
+  }
+
+  /**
+   * Returns the number of events in the cascade leading to and including this one. Events posted
+   * from outside of a handler have depth one, events posted by their handlers have depth two, and
+   * so on. Unlike {@link #getParent}, this is always available.
+   */
+  public int getDepth() {
+    return depth;
+  }
+
+  /**
+   * Returns the context of the event that started the cascade of events leading to this one, which
+   * is this context itself if this event was posted from outside of a handler. This can be used to
+   * attribute the cost of a cascade to the user action that triggered it.
+   */
+  public DispatchContext getRoot() {
+    DispatchContext root = this;
+    while (root.parent != null) {
+      root = root.parent;
+    }
+    return root;
+  }
+
+  /**
+   * Consumes the event, preventing it from being delivered to any handlers that have not yet been
+   * invoked for it. Handlers that have already been invoked are not affected.
+   */
+  public void consume() {
+    consumed = true;
+  }
+
+  /** Returns whether {@link #consume} has been called for this event. */
+  public boolean isConsumed() {
+    return consumed;
+  }
+}
@@ -13,14 +13,26 @@
  */
 package com.ekuefler.supereventbus;
 
+import com.ekuefler.supereventbus.impl.ClassBasedEventHandlerMethod;
+import com.ekuefler.supereventbus.impl.DeferredDispatcher;
 import com.ekuefler.supereventbus.impl.EventHandlerMethod;
+import com.ekuefler.supereventbus.impl.ScheduledEventHandlerMethod;
+import com.ekuefler.supereventbus.monitoring.DispatchMonitor;
+import com.ekuefler.supereventbus.monitoring.DispatchOutcome;
+import com.ekuefler.supereventbus.monitoring.DispatchTrace;
 import com.ekuefler.supereventbus.multievent.MultiEvent;
+import com.ekuefler.supereventbus.priority.EventPriority;
+import com.ekuefler.supereventbus.priority.HasEventPriority;
 import com.google.gwt.core.client.JavaScriptObject;
 import com.google.gwt.core.shared.GWT;
+import com.google.gwt.user.client.Timer;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -107,11 +119,27 @@ import java.util.TreeMap;
  */
 public class EventBus {
 
+  // An instance of DeadEvent used to check whether any handlers for DeadEvents are registered
+  // without having to create a new DeadEvent for each check
+  private static final DeadEvent DEAD_EVENT_PROTOTYPE = new DeadEvent(null);
+
+  // Rough number of bytes of bookkeeping retained for each registered handler, each handler in a
+  // cache entry, each cache entry, and each queued handler invocation, used to estimate memory use
+  private static final int BYTES_PER_HANDLER = 48;
+  private static final int BYTES_PER_CACHED_HANDLER = 24;
+  private static final int BYTES_PER_CACHE_ENTRY = 160;
+  private static final int BYTES_PER_QUEUED_INVOCATION = 48;
+
+  // Maximum number of events included when describing a cascade that exceeded the cascade limits
+  private static final int MAX_DESCRIBED_CASCADE_LENGTH = 10;
+
   // No-op handler method used as a sentinel when handlers are removed
   private static final EventHandlerMethod<Object, Object> NULL_HANDLER_METHOD =
       new EventHandlerMethod<Object, Object>() {
         @Override
-        public void invoke(Object instance, Object arg) {}
+        public boolean invoke(Object instance, Object arg) {
+          return false;
+        }
 
         @Override
         public boolean acceptsArgument(Object arg) {
@@ -122,36 +150,191 @@ public class EventBus {
         public int getDispatchOrder() {
           return 0;
         }
+
+        @Override
+        public String getName() {
+          return "unregistered";
+        }
       };
 
-  // Map from priority numbers to a list of all event handlers registered at that priority
-  private final Map<Integer, List<EventHandler<?, ?>>> allHandlersByPriority =
+  // Parent bus that events are forwarded to, or null if this is not a child bus, and the policy
+  // determining which events are forwarded
+  private final EventBus parent;
+  private final ForwardingPolicy forwardingPolicy;
+
+  // Pseudo-handlers that forward events to the parent at each priority, created as needed
+  private final Map<EventPriority, EventHandler<Object, Object>> forwardingHandlers =
+      new EnumMap<EventPriority, EventHandler<Object, Object>>(EventPriority.class);
+
+  // Frozen bus this bus was copied from via EventBusTemplate, or null if it wasn't copied
+  private final EventBus template;
+
+  // Map from priority numbers to a list of all event handlers registered at that priority. A bus
+  // copied from a template shares the template's lists until it registers handlers of its own.
+  private Map<Integer, List<EventHandler<?, ?>>> allHandlersByPriority =
       new HashMap<Integer, List<EventHandler<?, ?>>>();
+  private boolean sharesTemplateHandlers = false;
+
+  // Map from each registered object to its handlers, so that the handlers for an object can be
+  // found without scanning every registered handler. When objects are held through references, the
+  // map is keyed by each object's reference instead of the object itself.
+  private final Map<Object, List<EventHandler<?, ?>>> handlersByOwner =
+      new IdentityHashMap<Object, List<EventHandler<?, ?>>>();
+
+  // Factory for references through which registered objects are held, or null if they are held
+  // strongly, along with the references for each identity hash code so that the reference for an
+  // object can be found without holding the object
+  private OwnerReferences ownerReferences = null;
+  private final Map<Integer, List<OwnerReferences.Reference>> ownerReferencesByHash =
+      new HashMap<Integer, List<OwnerReferences.Reference>>();
+
+  // Objects registered via registerLazily that still have handlers that haven't been created, in
+  // the order they were registered, along with the same registrations keyed by object. Finished
+  // registrations are replaced with null rather than removed, so that the indices stored in the
+  // cache remain valid until the nulls are trimmed and the indices adjusted.
+  private final List<LazyRegistration<?>> lazyRegistrations = new ArrayList<LazyRegistration<?>>();
+  private final Map<Object, LazyRegistration<?>> lazyRegistrationsByOwner =
+      new IdentityHashMap<Object, LazyRegistration<?>>();
+  private int lazyTombstoneCount = 0;
+
+  // Handler methods of one registration of each class used with registerLazily, used to decide
+  // which methods of every registration of that class accept an event without creating them. Maps
+  // to null for registration classes whose methods can't be matched by event class alone.
+  private final Map<Class<?>, List<? extends EventHandlerMethod<?, ?>>> lazyMethodPrototypes =
+      new HashMap<Class<?>, List<? extends EventHandlerMethod<?, ?>>>();
+
+  // Number of registered objects whose handlers were removed after they were garbage collected
+  private int collectedOwnerCount = 0;
+
+  // Map from each open registration scope to the handlers registered through it
+  private final Map<RegistrationScope, ScopeState> openScopes =
+      new IdentityHashMap<RegistrationScope, ScopeState>();
 
   // Cache of known event handlers for each event type. The cache for each event class keeps track
   // of all handlers for that event and when the global handler list was last checked. When an event
   // is fired, all new handlers added since the last time the event was fired are checked and added
   // to the cache as need be. This should mean that all dispatches after the first for a given event
-  // type will be efficient so long as few new handlers were added.
-  private final Map<Class<?>, CacheEntry<?>> handlerCache = new HashMap<Class<?>, CacheEntry<?>>();
+  // type will be efficient so long as few new handlers were added. If the cache is limited, it is
+  // kept in access order so that the least recently used entry can be evicted.
+  private Map<Class<?>, CacheEntry<?>> handlerCache = new HashMap<Class<?>, CacheEntry<?>>();
+
+  // Whether cache entries are built for the classes handled by each object when it is registered
+  private boolean eagerCaching = false;
+
+  // Maximum number of entries in the handler cache, or zero if unlimited, along with the number of
+  // lookups that found an existing entry, that had to create a new one, and that evicted one
+  private int handlerCacheLimit = 0;
+  private int cacheHitCount = 0;
+  private int cacheMissCount = 0;
+  private int cacheEvictionCount = 0;
 
   // A queue of events being dispatched. When one event fires another event, it is added to the
-  // queue rather than dispatched immediately in order to preserve the order of events.
-  private final Queue<EventWithHandler<?, ?>> eventsToDispatch =
-      new LinkedList<EventWithHandler<?, ?>>();
+  // queue rather than dispatched immediately in order to preserve the order of events. The queue is
+  // divided into lanes by event priority, so that urgent events can skip ahead of queued work.
+  private final DispatchQueue eventsToDispatch = new DispatchQueue();
 
-  // Whether we are in the process of dispatching events
+  // Whether we are in the process of dispatching events, and the root of the cascade of events
+  // being aborted because it exceeded the cascade limits, if any
   private boolean isDispatching = false;
+  private DispatchContext abortedCascade = null;
+
+  // Context of the event whose handler is currently being invoked and the object on which the
+  // handler is defined, or null if no handler is running
+  private DispatchContext currentDispatch;
+  private Object currentOwner;
+
+  // Failures that occurred during the current call to dispatchQueuedEvents, or null if nothing has
+  // failed yet
+  private List<Failure> failures;
+
+  // What to do with events that have no handlers
+  private DeadEventPolicy deadEventPolicy = DeadEventPolicy.POST_ALL;
+
+  // Number of events posted without handlers, and counts of them by class when aggregating
+  private int deadEventCount = 0;
+  private Map<Class<?>, int[]> deadEventCountsByClass = new HashMap<Class<?>, int[]>();
+
+  // Monitor notified around each handler invocation, or null if dispatches aren't being monitored
+  private DispatchMonitor dispatchMonitor = null;
+
+  // Trace recording everything the event bus does, or null if nothing is being recorded
+  private DispatchTrace dispatchTrace = null;
+
+  // Whether posted events are linked to the events whose handlers posted them, and the ID assigned
+  // to the most recently posted event if so
+  private boolean causalityTracking = false;
+  private int lastEventId = 0;
+
+  // Whether EventBusExceptions should be created without capturing their own stack traces
+  private boolean lightweightExceptions = false;
+
+  // Number of consecutive failures after which a handler is suspended, or zero if handlers should
+  // never be suspended, and the number of milliseconds after which suspended handlers are resumed,
+  // or zero if they must be resumed manually
+  private int failureThreshold = 0;
+  private int suspensionBackoffMillis = 0;
+
+  // Number of times any handler has been suspended, and the number of handlers currently suspended
+  private int handlerSuspensionCount = 0;
+  private int suspendedHandlerCount = 0;
+
+  // Watchdog timing each handler invocation, or null if handlers aren't being timed
+  private SlowHandlerWatchdog slowHandlerWatchdog = null;
+
+  // Invocations of demoted handlers waiting to be dispatched, and the task that will dispatch them
+  private List<EventWithHandler<?, ?>> demotedInvocations = new ArrayList<EventWithHandler<?, ?>>();
+  private TaskScheduler.Task demotedInvocationTask = null;
+
+  // Number of handler invocations that exceeded the watchdog's budget, number of handlers reported
+  // by the watchdog, number of handlers currently demoted, and number of demoted invocations
+  private int slowInvocationCount = 0;
+  private int slowHandlerCount = 0;
+  private int demotedHandlerCount = 0;
+  private int demotedInvocationCount = 0;
+
+  // Detector tracking registered objects to find leaks, or null if leaks aren't being tracked
+  private RegistrationLeakDetector leakDetector = null;
+
+  // Maximum depth of a cascade of events and maximum number of queued handler invocations, or zero
+  // if unlimited, along with the peak values seen and the number of times the limits were exceeded
+  private int maxCascadeDepth = 0;
+  private int maxQueueLength = 0;
+  private int peakCascadeDepth = 0;
+  private int cascadeLimitCount = 0;
+
+  // Number of handlers currently paused via pauseHandlers
+  private int pausedHandlerCount = 0;
+
+  // Number of events that were consumed, and the number of handler invocations this skipped
+  private int consumedEventCount = 0;
+  private int skippedHandlerCount = 0;
 
   // List of all exception handlers registered by the user
   private final List<ExceptionHandler> exceptionHandlers = new LinkedList<ExceptionHandler>();
 
+  // Scheduler used to run deferred handler invocations
+  private TaskScheduler taskScheduler = new TimerTaskScheduler();
+
   /**
    * Creates a new event bus. In dev mode, any exceptions that occur while dispatching events will
    * be logged with {@link GWT#log}. In prod mode, exceptions are silently ignored unless a handler
    * is added via {@link #addExceptionHandler}.
    */
   public EventBus() {
+    this(null, ForwardingPolicy.NONE, null);
+  }
+
+  /** Creates a copy of the given frozen template. Visible for {@link EventBusTemplate}. */
+  EventBus(EventBus template) {
+    this(null, ForwardingPolicy.NONE, template);
+    allHandlersByPriority = template.allHandlersByPriority;
+    sharesTemplateHandlers = true;
+  }
+
+  private EventBus(EventBus parent, ForwardingPolicy forwardingPolicy, EventBus template) {
+    this.parent = parent;
+    this.forwardingPolicy = forwardingPolicy;
+    this.template = template;
     if (!GWT.isProdMode()) {
       addExceptionHandler(new ExceptionHandler() {
         @Override
@@ -171,43 +354,99 @@ public class EventBus {
    * Note that {@link JavaScriptObject}s cannot be posted directly on an event bus since GWT does
    * not preserve their type information at runtime. If you need to post JavaScriptObjects, wrap
    * them in a containing object to be posted.
+   * <p>
+   * If the event implements {@link HasEventPriority}, it is dispatched with the priority it
+   * declares. Otherwise it is dispatched with {@link EventPriority#NORMAL} priority.
    *
    * @param event event object to post to all handlers
    */
   public <T> void post(T event) {
+    post(event, event instanceof HasEventPriority
+        ? ((HasEventPriority) event).getEventPriority()
+        : EventPriority.NORMAL);
+  }
+
+  /**
+   * Posts the given event to all handlers registered on this event bus with the given priority.
+   * Whenever the event bus is ready to invoke another handler, it chooses one for the
+   * highest-priority event that is waiting, so this event's handlers will run before those of any
+   * lower-priority events that are still queued. Events with the same priority are handled in the
+   * order in which they were posted. In all other respects, this method behaves just like
+   * {@link #post(Object)}.
+   *
+   * @param event event object to post to all handlers
+   * @param priority priority with which to dispatch the event, overriding any priority declared by
+   *          the event itself
+   */
+  public <T> void post(T event, EventPriority priority) {
     // Check argument validity
-    if (event == null) {
+    if (event == null || priority == null) {
       throw new NullPointerException();
     } else if (event instanceof MultiEvent) {
       throw new IllegalArgumentException("MultiEvents cannot be posted directly");
     } else if (event instanceof JavaScriptObject) {
       throw new IllegalArgumentException("JavaScriptObjects cannot be posted");
     }
+    if (dispatchTrace != null) {
+      dispatchTrace.recordPost(event.getClass(), isDispatching);
+    }
 
-    // Look up the cache entry for the class of the given event, adding a new entry if this is the
-    // first time an event of the class has been fired.
-    if (!handlerCache.containsKey(event.getClass())) {
-      handlerCache.put(event.getClass(), new CacheEntry<T>());
+    // Drop events posted by handlers of a cascade that was aborted for exceeding the limits
+    if (abortedCascade != null && currentDispatch != null
+        && currentDispatch.getRoot() == abortedCascade) {
+      return;
     }
-    @SuppressWarnings("unchecked")
-    CacheEntry<T> cacheEntry = (CacheEntry<T>) handlerCache.get(event.getClass());
 
-    // Updates the cache for the given event class, ensuring that it contains all registered
-    // handlers for that class. This time this takes will depend on the number of new event handlers
-    // added since the last time an event of this type was fired.
-    cacheEntry.update(event);
+    // Remove the handlers of any objects that were garbage collected since the last post
+    if (ownerReferences != null) {
+      removeCollectedOwners();
+    }
+
+    // Look up the cache entry for the class of the given event, adding a new entry if this is the
+    // first time an event of the class has been fired.
+    CacheEntry<T> cacheEntry = getCacheEntry(event);
 
-    // Queue up all handlers for this event
+    // Queue up all handlers for this event. They all share a single context, which allows any of
+    // them to consume the event.
     List<EventHandler<?, T>> handlers = cacheEntry.getAllHandlers();
+    boolean forward = shouldForward(event, handlers);
+    DispatchContext context = handlers.isEmpty() && !forward ? null : newContext(event);
+    if (context != null && !isWithinCascadeLimits(context, handlers, forward)) {
+      if (!isDispatching) {
+        dispatchQueuedEvents();
+      }
+      return;
+    }
+    int queuedCount = 0;
     for (EventHandler<?, T> wildcardHandler : handlers) {
       @SuppressWarnings("unchecked")
       EventHandler<Object, T> handler = (EventHandler<Object, T>) wildcardHandler;
-      eventsToDispatch.add(new EventWithHandler<Object, T>(event, handler));
+      if (handler.suspended || handler.paused) {
+        continue;
+      } else if (handler.demoted) {
+        deferDemotedInvocation(new EventWithHandler<Object, T>(event, handler, context));
+      } else {
+        eventsToDispatch.add(priority, new EventWithHandler<Object, T>(event, handler, context));
+        queuedCount++;
+      }
+    }
+    if (dispatchTrace != null) {
+      dispatchTrace.recordEnqueue(event.getClass(), queuedCount);
+    }
+
+    // Forward the event to the parent bus after all of its handlers here have run, unless one of
+    // them consumes it
+    if (forward) {
+      @SuppressWarnings("unchecked")
+      EventHandler<Object, T> forwardingHandler =
+          (EventHandler<Object, T>) (EventHandler<?, ?>) getForwardingHandler(priority);
+      eventsToDispatch.add(priority, new EventWithHandler<Object, T>(event, forwardingHandler,
+          context));
     }
 
-    // If this event had no handlers, post a DeadEvent for debugging purposes
-    if (handlers.isEmpty() && !(event instanceof DeadEvent)) {
-      post(new DeadEvent(event));
+    // If this event had no handlers, handle it according to the dead event policy
+    if (handlers.isEmpty() && !forward && !(event instanceof DeadEvent)) {
+      handleDeadEvent(event, priority);
     }
 
     // Start dispatching the queued events. If we're already dispatching, it means that the handler
@@ -217,162 +456,2100 @@ public class EventBus {
     }
   }
 
-  @SuppressWarnings("unchecked")
-  private <T> void dispatchQueuedEvents() {
-    isDispatching = true;
+  /**
+   * Posts an event created by the given factory, but only if the event would be handled. If this
+   * bus knows that no handlers are registered for the given event class (see
+   * {@link #hasSubscribers}), the factory is never invoked and nothing is posted. Otherwise, the
+   * event is created and posted exactly as if it were passed to {@link #post(Object)}. This allows
+   * events that are expensive to construct to be posted without paying for their construction when
+   * nothing is listening for them.
+   * <p>
+   * If the dead event policy posts {@link DeadEvent}s and handlers for them are registered, the
+   * event is always created so that it can be wrapped in a {@link DeadEvent} if it turns out to
+   * have no handlers. Under other policies, events without handlers are never created.
+   *
+   * @param eventClass the exact class of the event created by the factory
+   * @param factory factory used to create the event if it is needed
+   */
+  public <T> void post(Class<T> eventClass, EventFactory<? extends T> factory) {
+    if (eventClass == null || factory == null) {
+      throw new NullPointerException();
+    }
+    if (hasSubscribers(eventClass)
+        || (deadEventPolicy.getMode() == DeadEventPolicy.Mode.POST && hasDeadEventHandlers())) {
+      post(factory.create());
+    }
+  }
+
+  /**
+   * Returns whether any handlers might be invoked if an event of exactly the given class were
+   * posted. The answer is looked up in the cache of handlers for each event class, so this method
+   * is cheap to call. Note that since handlers are matched against event instances, the event bus
+   * can only know for sure that a class has no handlers once an event of that class has been posted
+   * and no new handlers have been registered since - if this is not the case, this method
+   * conservatively returns <code>true</code>. Filters are not taken into account. On a child bus,
+   * this also returns <code>true</code> if the parent might have handlers for the class, since the
+   * event might be forwarded to it.
+   *
+   * @param eventClass class of event to check
+   * @return <code>false</code> if posting an event of the given class is known to have no effect
+   *         other than firing a {@link DeadEvent}, <code>true</code> otherwise
+   */
+  public boolean hasSubscribers(Class<?> eventClass) {
+    CacheEntry<?> cacheEntry = handlerCache.get(eventClass);
+    return cacheEntry == null || !cacheEntry.isUpToDate() || cacheEntry.hasHandlers()
+        || (parent != null && parent.hasSubscribers(eventClass));
+  }
+
+  /**
+   * Creates a child of this event bus. The child keeps its own registered handlers and handler
+   * cache, so posting events on it only has to consider the handlers registered on the child. After
+   * an event's handlers on the child have run, the event is posted on this bus if the given policy
+   * calls for it or if the event implements {@link ForwardedEvent}, unless one of the child's
+   * handlers consumed it. Forwarded events are posted on the parent with the same priority they
+   * were posted on the child with, so they are handled after any work already waiting on the parent
+   * at the same or higher priority. Handler priorities only order handlers within a single bus: all
+   * of an event's handlers on the child run before any of its handlers on the parent.
+   * <p>
+   * The child starts out with its own default settings, so exception handlers, monitors, and other
+   * settings of this bus must be installed on the child separately if desired.
+   *
+   * @param forwardingPolicy policy determining which events are forwarded to this bus
+   * @return a new child event bus
+   */
+  public EventBus createChild(ForwardingPolicy forwardingPolicy) {
+    if (forwardingPolicy == null) {
+      throw new NullPointerException();
+    }
+    return new EventBus(this, forwardingPolicy, null);
+  }
+
+  /** Returns the bus this bus was created from via {@link #createChild}, or null if none. */
+  public EventBus getParent() {
+    return parent;
+  }
+
+  // Returns whether the given event with the given handlers should be forwarded to the parent bus.
+  // The handlers are only checked for child buses that forward unhandled events, so that other
+  // buses don't pay for an extra pass over them on every post.
+  private boolean shouldForward(Object event, List<? extends EventHandler<?, ?>> handlers) {
+    if (parent == null || event instanceof DeadEvent) {
+      return false;
+    }
+    return forwardingPolicy == ForwardingPolicy.ALL
+        || event instanceof ForwardedEvent
+        || (forwardingPolicy == ForwardingPolicy.UNHANDLED && !hasRunnableHandlers(handlers));
+  }
+
+  // Returns whether any of the given handlers will be invoked if an event is posted now. Paused and
+  // suspended handlers are skipped, while demoted handlers are still invoked later.
+  private static boolean hasRunnableHandlers(List<? extends EventHandler<?, ?>> handlers) {
+    for (EventHandler<?, ?> handler : handlers) {
+      if (!handler.suspended && !handler.paused) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // Invokes the given group handler method on each object in the group for the event currently
+  // being dispatched, stopping early if one of them consumes it. Each object is treated like an
+  // ordinary handler: its invocation is reported to the dispatch monitor, trace, and leak detector,
+  // and it is suspended by the circuit breaker or timed and demoted by the watchdog on its own.
+  // Returns false if every object that received the event rejected it.
+  private <T> boolean dispatchToGroup(OwnerGroup<?> group, GroupMethod<T> method, T event) {
+    DispatchContext context = currentDispatch;
+    String name = method.getName();
+    boolean received = false;
+    boolean accepted = false;
+
+    // Objects added while the event is delivered don't receive it. Slots don't move during
+    // delivery, but are re-read so that objects removed along the way are skipped.
+    int slotCount = group.slotCount;
+    group.dispatching = true;
     try {
-      // Dispatch all events in the queue, saving any exceptions for later
-      EventWithHandler<Object, T> eventWithHandler;
-      List<EventBusException> exceptions = new LinkedList<EventBusException>();
-      while ((eventWithHandler = (EventWithHandler<Object, T>) eventsToDispatch.poll()) != null) {
+      for (int i = 0; i < slotCount; i++) {
+        Object owner = group.owners[i];
+        if (owner == null) {
+          continue;
+        } else if (context.isConsumed()) {
+          skippedHandlerCount++;
+          continue;
+        }
+
+        // Objects that have failed or run slowly have handlers of their own holding that state,
+        // which are skipped while suspended and invoked later while demoted
+        EventHandler<Object, T> member = method.getMember(owner);
+        if (member != null && member.suspended) {
+          continue;
+        } else if (member != null && member.demoted) {
+          deferDemotedInvocation(new EventWithHandler<Object, T>(event, member, context));
+          continue;
+        }
+
+        SlowHandlerWatchdog watchdog = slowHandlerWatchdog;
+        long startTime = watchdog != null ? watchdog.now() : 0;
+        currentDispatch = context;
+        currentOwner = owner;
+        if (leakDetector != null) {
+          leakDetector.onDispatch(owner);
+        }
+        if (dispatchMonitor != null) {
+          dispatchMonitor.beginDispatch(owner.getClass(), name, event.getClass());
+        }
+        if (dispatchTrace != null) {
+          dispatchTrace.recordHandlerBegin(owner.getClass(), name, event.getClass());
+        }
+        DispatchOutcome outcome = DispatchOutcome.INVOKED;
         try {
-          eventWithHandler.dispatch();
+          if (!method.delegate.invoke(owner, event)) {
+            outcome = DispatchOutcome.REJECTED;
+          }
+          if (member != null) {
+            member.consecutiveFailures = 0;
+          }
         } catch (Exception e) {
-          exceptions.add(new EventBusException(
-              e, eventWithHandler.handler.owner, eventWithHandler.event));
-        }
-      }
+          addFailure(new Failure(e, owner, context));
 
-      // Notify all exception handlers of each exception
-      for (EventBusException e : exceptions) {
-        for (ExceptionHandler exceptionHandler : exceptionHandlers) {
-          try {
-            exceptionHandler.handleException(e);
-          } catch (Exception ex) {
-            GWT.log("Caught exception while handling an EventBusException, ignoring it", ex);
+          // Objects that removed themselves from the group before failing are already gone
+          if (failureThreshold > 0 && group.owners[i] == owner) {
+            member = method.getOrAddMember(owner);
+            if (++member.consecutiveFailures >= failureThreshold) {
+              addFailure(new Failure(new HandlerSuspendedException(
+                  e, owner, context, member.consecutiveFailures)));
+              suspend(member);
+            }
+          }
+        } finally {
+          if (dispatchMonitor != null) {
+            dispatchMonitor.endDispatch(owner.getClass(), name, event.getClass(), outcome);
+          }
+          if (dispatchTrace != null) {
+            dispatchTrace.recordHandlerEnd(owner.getClass(), name, event.getClass(), outcome);
+          }
+          currentDispatch = null;
+          currentOwner = null;
+        }
+        if (watchdog != null && group.owners[i] == owner) {
+          long elapsedMillis = watchdog.now() - startTime;
+          if (elapsedMillis > watchdog.budgetMillis) {
+            checkHandlerTime(method.getOrAddMember(owner), context, watchdog, elapsedMillis);
           }
         }
+        received = true;
+        accepted |= outcome != DispatchOutcome.REJECTED;
       }
     } finally {
-      isDispatching = false;
+      group.dispatching = false;
     }
+    return accepted || !received;
   }
 
-  /**
-   * Registers all {@link Subscribe}-annotated in the given object on the event bus. Any methods
-   * annotated with {@link Subscribe} must take a single argument specifying the event to handle.
-   * After an object has been registered, whenever an event is posted on the event bus via
-   * {@link #post}, all handlers on that object for that event's type or its supertypes will be
-   * invoked with that event.
-   *
-   * @param owner object to scan for {@link Subscribe}-annotated methods to register
-   * @param registration the registration interface for the given owner
-   */
-  public <T> void register(T owner, EventRegistration<T> registration) {
-    // Add each handler method in the class to the global handler map according to its priority. The
-    // cache mapping event classes to handler methods will be updated when an event is fired.
-    for (EventHandlerMethod<T, ?> method : registration.getMethods()) {
-      addHandlerMethod(owner, method);
+  // Returns the pseudo-handler that forwards events to the parent bus with the given priority
+  private EventHandler<Object, Object> getForwardingHandler(EventPriority priority) {
+    EventHandler<Object, Object> handler = forwardingHandlers.get(priority);
+    if (handler == null) {
+      handler = new EventHandler<Object, Object>(parent, new ForwardingMethod(priority));
+      forwardingHandlers.put(priority, handler);
     }
+    return handler;
   }
 
-  /**
-   * Registers a single handler method on a given instance. Visible for
-   * {@link EventBusAdapter#addHandler}.
-   */
-  <T, E> void addHandlerMethod(T owner, EventHandlerMethod<T, E> method) {
-    if (!allHandlersByPriority.containsKey(method.getDispatchOrder())) {
-      allHandlersByPriority.put(method.getDispatchOrder(), new ArrayList<EventHandler<?, ?>>());
+  // Looks up the cache entry for the class of the given event, adding a new entry if this is the
+  // first time an event of the class has been fired, and updates it so that it contains all
+  // registered handlers for that class. The time this takes will depend on the number of new event
+  // handlers added since the last time an event of this type was fired.
+  private <T> CacheEntry<T> getCacheEntry(T event) {
+    @SuppressWarnings("unchecked")
+    CacheEntry<T> cacheEntry = (CacheEntry<T>) handlerCache.get(event.getClass());
+    if (cacheEntry != null) {
+      cacheHitCount++;
+    } else {
+      cacheMissCount++;
+      cacheEntry = newCacheEntry(event.getClass());
+      handlerCache.put(event.getClass(), cacheEntry);
+    }
+    if (cacheEntry.nextLazyRegistrationToCheck < lazyRegistrations.size()) {
+      addLazyHandlers(cacheEntry, event);
     }
-    allHandlersByPriority.get(method.getDispatchOrder()).add(new EventHandler<T, E>(owner, method));
+    cacheEntry.update(event);
+    return cacheEntry;
   }
 
-  /**
-   * Unregisters all event handlers on the given object. After unregistering, {@link Subscribe}-
-   * annotated methods on that object will never be invoked when an event is posted (unless the
-   * object is registered again). This given object must have already been registered on the event
-   * bus.
-   *
-   * @param owner object whose handlers should be disabled. Must already have been registered via a
-   *          call to {@link #register}.
-   * @throws IllegalArgumentException if the given object was never registered on this event bus
-   */
-  public void unregister(Object owner) {
-    // First clear entries from the global handler list. We can't actually remove entries, since
-    // this would break the indices stored in the cache. So replace removed entries with no-ops.
-    boolean removed = false;
-    for (List<EventHandler<?, ?>> handlerList : allHandlersByPriority.values()) {
-      for (EventHandler<?, ?> handler : handlerList) {
-        if (owner == handler.owner) {
-          handler.nullify();
-          removed = true;
+  // Creates the handlers accepting the given event for each object registered lazily since the
+  // given cache entry was last updated. This has to happen before the entry is updated, since the
+  // update scans the global handler lists that the new handlers are added to.
+  private <T> void addLazyHandlers(CacheEntry<T> cacheEntry, T event) {
+    // Which methods accept the event, worked out once for each class of registration. Maps to null
+    // for classes whose registrations must each be asked.
+    Map<Class<?>, boolean[]> acceptedMethodsByClass = new HashMap<Class<?>, boolean[]>();
+    for (int i = cacheEntry.nextLazyRegistrationToCheck; i < lazyRegistrations.size(); i++) {
+      LazyRegistration<?> lazyRegistration = lazyRegistrations.get(i);
+      if (lazyRegistration == null) {
+        continue;
+      }
+      Class<?> registrationClass = lazyRegistration.registration.getClass();
+      if (!acceptedMethodsByClass.containsKey(registrationClass)) {
+        acceptedMethodsByClass.put(
+            registrationClass, getAcceptedMethods(lazyRegistration.registration, event));
+      }
+      addLazyHandlers(lazyRegistration, event, acceptedMethodsByClass.get(registrationClass));
+    }
+    cacheEntry.nextLazyRegistrationToCheck = lazyRegistrations.size();
+    trimLazyRegistrations();
+  }
+
+  // Returns which of the methods of registrations of the given one's class accept the given event,
+  // or null if this can't be decided by the class of the event alone
+  private boolean[] getAcceptedMethods(EventRegistration<?> registration, Object event) {
+    if (!lazyMethodPrototypes.containsKey(registration.getClass())) {
+      List<? extends EventHandlerMethod<?, ?>> methods = registration.getMethods();
+      for (EventHandlerMethod<?, ?> method : methods) {
+        if (!(method instanceof ClassBasedEventHandlerMethod)) {
+          methods = null;
+          break;
         }
       }
+      lazyMethodPrototypes.put(registration.getClass(), methods);
+    }
+    List<? extends EventHandlerMethod<?, ?>> prototypes =
+        lazyMethodPrototypes.get(registration.getClass());
+    if (prototypes == null) {
+      return null;
+    }
+    boolean[] accepted = new boolean[prototypes.size()];
+    int i = 0;
+    for (EventHandlerMethod<?, ?> prototype : prototypes) {
+      accepted[i++] = prototype.acceptsArgument(event);
+    }
+    return accepted;
+  }
+
+  // Creates the handlers of the given lazy registration that accept the given event, or all of its
+  // remaining handlers if the event is null, and forgets the registration once none are left. If
+  // it is known which methods accept the event, the registration's methods are only created if
+  // one of those methods still needs a handler.
+  private <T> void addLazyHandlers(LazyRegistration<T> lazyRegistration, Object event,
+      boolean[] acceptedMethods) {
+    if (event != null && acceptedMethods != null) {
+      boolean needed = false;
+      for (int i = 0; i < acceptedMethods.length && !needed; i++) {
+        needed = acceptedMethods[i]
+            && (lazyRegistration.added == null || !lazyRegistration.added[i]);
+      }
+      if (!needed) {
+        return;
+      }
     }
 
-    // Ensure that something was actually removed
-    if (!removed) {
-      throw new IllegalArgumentException("Object was never registered: " + owner);
+    // Only the methods that receive handlers are kept, so fresh methods are created each time
+    List<EventHandlerMethod<T, ?>> methods = lazyRegistration.registration.getMethods();
+    if (lazyRegistration.added == null) {
+      lazyRegistration.added = new boolean[methods.size()];
+      lazyRegistration.remaining = methods.size();
+    }
+    int i = 0;
+    for (EventHandlerMethod<T, ?> method : methods) {
+      boolean accepts = event == null
+          || (acceptedMethods != null ? acceptedMethods[i] : method.acceptsArgument(event));
+      if (!lazyRegistration.added[i] && accepts) {
+        addHandlerMethod(lazyRegistration.owner, method, null);
+        lazyRegistration.added[i] = true;
+        lazyRegistration.remaining--;
+      }
+      i++;
+    }
+    if (lazyRegistration.remaining == 0) {
+      removeLazyRegistration(lazyRegistration);
+    }
+  }
+
+  // Creates all handlers of the given object that haven't been created yet if it was registered
+  // lazily, so that they can be modified along with the rest of its handlers
+  private void addAllLazyHandlers(Object owner) {
+    LazyRegistration<?> lazyRegistration = lazyRegistrationsByOwner.get(owner);
+    if (lazyRegistration != null) {
+      addLazyHandlers(lazyRegistration, null, null);
+      trimLazyRegistrations();
+    }
+  }
+
+  // Forgets the given lazy registration, leaving a null in its place in the list
+  private void removeLazyRegistration(LazyRegistration<?> lazyRegistration) {
+    lazyRegistrations.set(lazyRegistration.index, null);
+    lazyRegistrationsByOwner.remove(lazyRegistration.owner);
+    lazyTombstoneCount++;
+  }
+
+  // Removes the nulls left behind by finished lazy registrations once they make up more than half
+  // of the list, adjusting the indices stored in the registrations and the cache to match
+  private void trimLazyRegistrations() {
+    if (lazyTombstoneCount <= lazyRegistrations.size() / 2) {
+      return;
     }
 
-    // Remove handlers from the cache
+    // Record how many live registrations precede each index, then move them to the front
+    int[] liveBefore = new int[lazyRegistrations.size() + 1];
+    int liveCount = 0;
+    for (int i = 0; i < lazyRegistrations.size(); i++) {
+      liveBefore[i] = liveCount;
+      LazyRegistration<?> lazyRegistration = lazyRegistrations.get(i);
+      if (lazyRegistration != null) {
+        lazyRegistration.index = liveCount;
+        lazyRegistrations.set(liveCount++, lazyRegistration);
+      }
+    }
+    liveBefore[lazyRegistrations.size()] = liveCount;
     for (CacheEntry<?> entry : handlerCache.values()) {
-      entry.removeHandlersForOwner(owner);
+      entry.nextLazyRegistrationToCheck = liveBefore[entry.nextLazyRegistrationToCheck];
     }
+    while (lazyRegistrations.size() > liveCount) {
+      lazyRegistrations.remove(lazyRegistrations.size() - 1);
+    }
+    lazyTombstoneCount = 0;
+  }
+
+  // Creates a new cache entry for the given class. Starts from a copy of the template's entry if
+  // it has one, which is cheaper than checking each of the template's handlers again.
+  private <T> CacheEntry<T> newCacheEntry(Class<?> eventClass) {
+    @SuppressWarnings("unchecked")
+    CacheEntry<T> templateEntry = template == null
+        ? null
+        : (CacheEntry<T>) template.handlerCache.get(eventClass);
+    return templateEntry == null ? new CacheEntry<T>() : new CacheEntry<T>(templateEntry);
   }
 
   /**
-   * Adds an exception handler to be notified whenever an exception occurs while dispatching an
-   * event. Exception handlers are invoked only after all handlers have had a chance to process an
-   * event - at that point, every exception that occurred during dispatch is wrapped in an
-   * {@link EventBusException} and posted to every exception handler.
+   * Populates the cache entry for the class of the given event without posting it. Visible for
+   * {@link EventBusTemplate}.
+   */
+  void warmCache(Object event) {
+    getCacheEntry(event);
+  }
+
+  /**
+   * Marks all handlers on this bus as shared by the copies of a template, which will never update
+   * their circuit breaker or watchdog state. Visible for {@link EventBusTemplate}.
    *
-   * @param exceptionHandler handler to be notified when exceptions occur
+   * @throws IllegalStateException if any handlers can't be shared
    */
-  public void addExceptionHandler(ExceptionHandler exceptionHandler) {
-    exceptionHandlers.add(exceptionHandler);
+  void freeze() {
+    for (List<EventHandler<?, ?>> handlers : allHandlersByPriority.values()) {
+      for (EventHandler<?, ?> handler : handlers) {
+        if (handler.method instanceof ScheduledEventHandlerMethod) {
+          throw new IllegalStateException("Handlers that defer their invocations can't be shared "
+              + "between buses: " + handler.method.getName());
+        }
+        handler.shared = true;
+      }
+    }
+    getCacheEntry(DEAD_EVENT_PROTOTYPE);
   }
 
-  /** A handler method combined with a specific instance of a class declaring that method. */
-  private static class EventHandler<I, A> {
-    I owner;
-    EventHandlerMethod<I, A> method;
+  // Handles an event without handlers according to the current dead event policy
+  private void handleDeadEvent(Object event, EventPriority priority) {
+    deadEventCount++;
+    switch (deadEventPolicy.getMode()) {
+      case POST:
+        // Post a DeadEvent for debugging purposes. Don't bother creating the DeadEvent if nothing
+        // is listening for it.
+        if (deadEventCount % deadEventPolicy.getSampleRate() == 0 && hasDeadEventHandlers()) {
+          post(new DeadEvent(event), priority);
+        }
+        break;
+      case AGGREGATE:
+        int[] count = deadEventCountsByClass.get(event.getClass());
+        if (count == null) {
+          count = new int[1];
+          deadEventCountsByClass.put(event.getClass(), count);
+        }
+        count[0]++;
+        break;
+      case DISABLED:
+        break;
+    }
+  }
 
-    EventHandler(I owner, EventHandlerMethod<I, A> method) {
-      this.owner = owner;
-      this.method = method;
+  // Returns whether any handlers for DeadEvent might be registered. Like hasSubscribers, this reads
+  // the cache directly so that it neither counts as a lookup nor adds an entry that could evict
+  // another, and conservatively returns true until a posted DeadEvent brings the entry up to date.
+  private boolean hasDeadEventHandlers() {
+    CacheEntry<?> cacheEntry = handlerCache.get(DeadEvent.class);
+    return cacheEntry == null || !cacheEntry.isUpToDate() || cacheEntry.hasHandlers();
+  }
+
+  // Removes the handlers of all registered objects that have been garbage collected
+  private void removeCollectedOwners() {
+    boolean removedAny = false;
+    for (OwnerReferences.Reference reference = ownerReferences.poll(); reference != null;
+        reference = ownerReferences.poll()) {
+      List<EventHandler<?, ?>> ownerHandlers = removeOwner(reference);
+      if (ownerHandlers == null) {
+        continue;
+      }
+      for (EventHandler<?, ?> handler : ownerHandlers) {
+        resume(handler);
+        unpause(handler);
+        handler.nullify();
+      }
+      collectedOwnerCount++;
+      removedAny = true;
+    }
+    if (removedAny) {
+      for (CacheEntry<?> entry : handlerCache.values()) {
+        entry.removeNullifiedHandlers();
+      }
     }
+  }
 
+  // Queues a deferred delivery to the given handler, dispatching it immediately unless we're
+  // already in the process of dispatching events.
+  private void dispatchDeferred(EventHandler<?, ?> handler, Object payload) {
     @SuppressWarnings("unchecked")
-    void nullify() {
-      owner = null;
-      method = (EventHandlerMethod<I, A>) NULL_HANDLER_METHOD;
+    EventHandler<Object, Object> typedHandler = (EventHandler<Object, Object>) handler;
+    eventsToDispatch.add(EventPriority.NORMAL,
+        new DeferredDelivery(payload, typedHandler, newContext(payload)));
+    if (dispatchTrace != null) {
+      dispatchTrace.recordEnqueue(payload.getClass(), 1);
+    }
+    if (!isDispatching) {
+      dispatchQueuedEvents();
     }
   }
 
-  /** An event handler combined with a specific event to handle. */
-  private static class EventWithHandler<I, A> {
-    final A event;
-    final EventHandler<I, A> handler;
+  // Queues an invocation of a demoted handler to be dispatched after the current dispatch finishes
+  private void deferDemotedInvocation(EventWithHandler<?, ?> eventWithHandler) {
+    demotedInvocations.add(eventWithHandler);
+    if (demotedInvocationTask == null) {
+      demotedInvocationTask = taskScheduler.schedule(0, new Runnable() {
+        @Override
+        public void run() {
+          demotedInvocationTask = null;
+          dispatchDemotedInvocations();
+        }
+      });
+    }
+  }
 
-    EventWithHandler(A event, EventHandler<I, A> handler) {
-      this.event = event;
-      this.handler = handler;
+  // Dispatches all waiting invocations of demoted handlers at low priority
+  private void dispatchDemotedInvocations() {
+    List<EventWithHandler<?, ?>> invocations = demotedInvocations;
+    demotedInvocations = new ArrayList<EventWithHandler<?, ?>>();
+    for (EventWithHandler<?, ?> invocation : invocations) {
+      eventsToDispatch.add(EventPriority.LOW, invocation);
+    }
+    demotedInvocationCount += invocations.size();
+    if (!isDispatching) {
+      dispatchQueuedEvents();
     }
+  }
 
-    void dispatch() {
-      handler.method.invoke(handler.owner, event);
+  // Creates a context for a newly-posted event. The context is only linked to the event currently
+  // being handled if that is needed for causality tracking or for describing cascades.
+  private DispatchContext newContext(Object event) {
+    int depth = currentDispatch != null ? currentDispatch.getDepth() + 1 : 1;
+    if (depth > peakCascadeDepth) {
+      peakCascadeDepth = depth;
     }
+    return new DispatchContext(event,
+        causalityTracking ? ++lastEventId : 0,
+        causalityTracking || maxCascadeDepth > 0 || maxQueueLength > 0 ? currentDispatch : null,
+        depth);
   }
 
-  /**
-   * An entry in the handler cache for event classes, containing a list of known handlers and the
-   * index of the last handler checked.
-   */
-  private class CacheEntry<T> {
-    // Map from priority levels to a list of known event handlers for this type at that priority.
-    // The map is updated whenever an event is fired.
-    private final SortedMap<Integer, List<EventHandler<?, T>>> knownHandlersByPriority =
-        new TreeMap<Integer, List<EventHandler<?, T>>>();
+  // Checks whether the given event can be queued to the given handlers without exceeding the
+  // cascade limits. If not, the queued handler invocations for the rest of the event's cascade are
+  // discarded and a failure is recorded.
+  private boolean isWithinCascadeLimits(
+      DispatchContext context, List<? extends EventHandler<?, ?>> handlers, boolean forward) {
+    String violation;
+    if (maxCascadeDepth > 0 && context.getDepth() > maxCascadeDepth) {
+      violation = "Event cascade exceeded the maximum depth of " + maxCascadeDepth + ": "
+          + describeCascade(context);
+    } else if (maxQueueLength > 0
+        && eventsToDispatch.size() + countQueuedInvocations(handlers, forward) > maxQueueLength) {
+      violation = "Dispatch queue exceeded the maximum length of " + maxQueueLength
+          + " while posting " + describeCascade(context);
+    } else {
+      return true;
+    }
+    abortedCascade = context.getRoot();
+    eventsToDispatch.removeCascade(abortedCascade);
+    cascadeLimitCount++;
+    addFailure(new Failure(
+        new CascadeLimitException(new IllegalStateException(violation), currentOwner, context)));
+    return false;
+  }
 
-    // Map from priority levels to the last corresponding index in the global handler list that was
-    // checked at that priority. When updating the cache, we continue from this index in order to
-    // avoid having to re-scan entries that were already cached.
-    private final Map<Integer, Integer> nextHandlerToCheckByPriority =
-        new HashMap<Integer, Integer>();
+  // Returns the number of invocations that posting an event to the given handlers would add to the
+  // dispatch queue, leaving out handlers that are skipped or deferred
+  private static int countQueuedInvocations(
+      List<? extends EventHandler<?, ?>> handlers, boolean forward) {
+    int count = forward ? 1 : 0;
+    for (EventHandler<?, ?> handler : handlers) {
+      if (!handler.suspended && !handler.paused && !handler.demoted) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  // Describes the chain of events leading to the event with the given context. If the chain
+  // contains an earlier event of the same class, only the cycle between the two is described.
+  private static String describeCascade(DispatchContext context) {
+    Class<?> eventClass = context.getEvent().getClass();
+    LinkedList<String> names = new LinkedList<String>();
+    names.add(eventClass.getName());
+    DispatchContext ancestor = context.getParent();
+    boolean isCycle = false;
+    while (ancestor != null && !isCycle && names.size() < MAX_DESCRIBED_CASCADE_LENGTH) {
+      names.addFirst(ancestor.getEvent().getClass().getName());
+      isCycle = ancestor.getEvent().getClass() == eventClass;
+      ancestor = ancestor.getParent();
+    }
+
+    StringBuilder description = new StringBuilder(isCycle ? "cycle " : "");
+    if (!isCycle && ancestor != null) {
+      description.append("... -> ");
+    }
+    for (Iterator<String> it = names.iterator(); it.hasNext();) {
+      description.append(it.next());
+      if (it.hasNext()) {
+        description.append(" -> ");
+      }
+    }
+    return description.toString();
+  }
+
+  private void addFailure(Failure failure) {
+    if (failures == null) {
+      failures = new ArrayList<Failure>();
+    }
+    failures.add(failure);
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> void dispatchQueuedEvents() {
+    isDispatching = true;
+    try {
+      // Dispatch all events in the queue, saving any failures for later. The list of failures is
+      // only allocated once something fails.
+      EventWithHandler<Object, T> eventWithHandler;
+      while ((eventWithHandler = (EventWithHandler<Object, T>) eventsToDispatch.poll()) != null) {
+        // Skip handlers for events that were consumed by an earlier handler
+        if (eventWithHandler.context.isConsumed()) {
+          skippedHandlerCount++;
+          continue;
+        }
+
+        // Skip handlers that were suspended or paused after the event was queued
+        EventHandler<Object, T> handler = eventWithHandler.handler;
+        if (handler.suspended || handler.paused) {
+          continue;
+        }
+
+        // Remember the owner and method, since the handler may be unregistered while it runs. Skip
+        // handlers whose owners were unregistered or garbage collected.
+        Object owner = handler.getOwner();
+        EventHandlerMethod<Object, T> method = handler.method;
+        if (owner == null) {
+          continue;
+        }
+
+        // Notify the dispatch monitor and trace, if any, before and after invoking live handlers,
+        // and time them if a watchdog is installed. The handlers of an owner group do this for each
+        // object in the group instead.
+        boolean live = method != NULL_HANDLER_METHOD && !(method instanceof ForwardingMethod)
+            && !(method instanceof GroupMethod);
+        DispatchMonitor monitor = live ? dispatchMonitor : null;
+        DispatchTrace trace = live ? dispatchTrace : null;
+        SlowHandlerWatchdog watchdog = live ? slowHandlerWatchdog : null;
+        long startTime = watchdog != null ? watchdog.now() : 0;
+        currentDispatch = eventWithHandler.context;
+        currentOwner = owner;
+        if (live && leakDetector != null) {
+          leakDetector.onDispatch(owner);
+        }
+        if (monitor != null) {
+          monitor.beginDispatch(
+              owner.getClass(), method.getName(), eventWithHandler.event.getClass());
+        }
+        if (trace != null) {
+          trace.recordHandlerBegin(
+              owner.getClass(), method.getName(), eventWithHandler.event.getClass());
+        }
+
+        DispatchOutcome outcome = DispatchOutcome.INVOKED;
+        try {
+          outcome = eventWithHandler.dispatch();
+          if (!handler.shared) {
+            handler.consecutiveFailures = 0;
+          }
+        } catch (Exception e) {
+          addFailure(new Failure(e, owner, eventWithHandler.context));
+
+          // Handlers that unregistered their own owner before failing are already gone, so there
+          // is nothing left to suspend
+          if (!handler.shared && handler.method != NULL_HANDLER_METHOD) {
+            handler.consecutiveFailures++;
+          }
+          if (failureThreshold > 0 && handler.consecutiveFailures >= failureThreshold) {
+            addFailure(new Failure(new HandlerSuspendedException(
+                e, owner, eventWithHandler.context, handler.consecutiveFailures)));
+            suspend(handler);
+          }
+        } finally {
+          if (monitor != null) {
+            monitor.endDispatch(
+                owner.getClass(), method.getName(), eventWithHandler.event.getClass(), outcome);
+          }
+          if (trace != null) {
+            trace.recordHandlerEnd(
+                owner.getClass(), method.getName(), eventWithHandler.event.getClass(), outcome);
+          }
+          currentDispatch = null;
+          currentOwner = null;
+        }
+        if (watchdog != null && handler.method != NULL_HANDLER_METHOD && !handler.shared) {
+          checkHandlerTime(handler, eventWithHandler.context, watchdog,
+              watchdog.now() - startTime);
+        }
+        if (eventWithHandler.context.isConsumed()) {
+          consumedEventCount++;
+        }
+      }
+
+      // Notify all exception handlers of each failure. Exceptions are only created if there is
+      // someone to notify.
+      List<Failure> failuresToReport = failures;
+      failures = null;
+      if (failuresToReport != null && !exceptionHandlers.isEmpty()) {
+        for (Failure failure : failuresToReport) {
+          EventBusException e = failure.toException(lightweightExceptions);
+          for (ExceptionHandler exceptionHandler : exceptionHandlers) {
+            try {
+              exceptionHandler.handleException(e);
+            } catch (Exception ex) {
+              GWT.log("Caught exception while handling an EventBusException, ignoring it", ex);
+            }
+          }
+        }
+      }
+    } finally {
+      isDispatching = false;
+      abortedCascade = null;
+    }
+  }
+
+  // Checks how long the given handler took against the watchdog's budget, reporting and possibly
+  // demoting the handler if it has exceeded the budget too many times
+  private void checkHandlerTime(EventHandler<?, ?> handler, DispatchContext context,
+      SlowHandlerWatchdog watchdog, long elapsedMillis) {
+    if (elapsedMillis <= watchdog.budgetMillis) {
+      return;
+    }
+    slowInvocationCount++;
+    if (++handler.slowInvocations == watchdog.strikeLimit) {
+      slowHandlerCount++;
+      if (watchdog.demotionEnabled && !handler.demoted) {
+        handler.demoted = true;
+        demotedHandlerCount++;
+      }
+      addFailure(new Failure(new SlowHandlerException(handler.getOwner(), context,
+          handler.method.getName(), elapsedMillis, watchdog.budgetMillis, handler.slowInvocations,
+          handler.demoted)));
+    }
+  }
+
+  // Suspends the given handler so that it won't receive any more events until it is resumed
+  private void suspend(final EventHandler<?, ?> handler) {
+    handler.suspended = true;
+    handlerSuspensionCount++;
+    suspendedHandlerCount++;
+    if (suspensionBackoffMillis > 0) {
+      handler.resumeTask = taskScheduler.schedule(suspensionBackoffMillis, new Runnable() {
+        @Override
+        public void run() {
+          handler.resumeTask = null;
+          resume(handler);
+        }
+      });
+    }
+  }
+
+  // Resumes the given handler if it is suspended or demoted, allowing it to receive events normally
+  // again
+  private void resume(EventHandler<?, ?> handler) {
+    if (handler.suspended) {
+      handler.suspended = false;
+      handler.consecutiveFailures = 0;
+      handler.cancelResumeTask();
+      suspendedHandlerCount--;
+    }
+    if (handler.demoted) {
+      handler.demoted = false;
+      demotedHandlerCount--;
+    }
+    handler.slowInvocations = 0;
+
+    // Resuming the handler of an owner group resumes each object in the group
+    if (handler.method instanceof GroupMethod) {
+      Map<Object, ? extends EventHandler<?, ?>> members = ((GroupMethod<?>) handler.method).members;
+      if (members != null) {
+        for (EventHandler<?, ?> member : members.values()) {
+          resume(member);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the context of the event currently being handled, which can be used to consume the
+   * event so that handlers that have not yet seen it are skipped. This may only be called from
+   * within a handler method.
+   *
+   * @throws IllegalStateException if no handler is currently being invoked
+   */
+  public DispatchContext getCurrentDispatch() {
+    if (currentDispatch == null) {
+      throw new IllegalStateException("No event is currently being dispatched");
+    }
+    return currentDispatch;
+  }
+
+  /**
+   * Registers all {@link Subscribe}-annotated in the given object on the event bus. Any methods
+   * annotated with {@link Subscribe} must take a single argument specifying the event to handle.
+   * After an object has been registered, whenever an event is posted on the event bus via
+   * {@link #post}, all handlers on that object for that event's type or its supertypes will be
+   * invoked with that event.
+   *
+   * @param owner object to scan for {@link Subscribe}-annotated methods to register
+   * @param registration the registration interface for the given owner
+   */
+  public <T> void register(T owner, EventRegistration<T> registration) {
+    // Add each handler method in the class to the global handler map according to its priority. The
+    // cache mapping event classes to handler methods will be updated when an event is fired, unless
+    // it is updated eagerly.
+    List<EventHandlerMethod<T, ?>> methods = registration.getMethods();
+    for (EventHandlerMethod<T, ?> method : methods) {
+      addHandlerMethod(owner, method, null);
+    }
+    if (eagerCaching) {
+      warmUpCacheForRegistration(methods);
+    }
+  }
+
+  /**
+   * Registers all {@link Subscribe}-annotated methods in the given object like {@link #register},
+   * but defers creating the handlers for those methods until an event that they handle is posted.
+   * Until then, the event bus only remembers the object and its registration. This makes
+   * registering large numbers of objects cheap when most of their handlers are never invoked, such
+   * as for rows in a large table. The first post of each event class pays for checking every object
+   * registered lazily since the last post of that class.
+   * <p>
+   * Handlers created this way are placed after any handlers that already exist at the same
+   * priority, so they may be invoked after the handlers of objects registered later. Handlers that
+   * haven't been created yet aren't included by {@link #warmUpCache}. If registered objects are
+   * held through references (see {@link #setOwnerReferences}), the object's handlers are created
+   * immediately as if by {@link #register}.
+   *
+   * @param owner object to scan for {@link Subscribe}-annotated methods to register
+   * @param registration the registration interface for the given owner
+   */
+  public <T> void registerLazily(T owner, EventRegistration<T> registration) {
+    if (ownerReferences != null || lazyRegistrationsByOwner.containsKey(owner)) {
+      register(owner, registration);
+      return;
+    }
+    LazyRegistration<T> lazyRegistration =
+        new LazyRegistration<T>(owner, registration, lazyRegistrations.size());
+    lazyRegistrations.add(lazyRegistration);
+    lazyRegistrationsByOwner.put(owner, lazyRegistration);
+    if (leakDetector != null) {
+      leakDetector.onRegister(owner);
+    }
+  }
+
+  /** Registers the given object as part of a scope. Visible for {@link RegistrationScope}. */
+  <T> void register(T owner, EventRegistration<T> registration, RegistrationScope scope) {
+    ScopeState scopeState = openScopes.get(scope);
+    if (scopeState == null) {
+      throw new IllegalStateException("Scope has already been closed");
+    }
+    List<EventHandlerMethod<T, ?>> methods = registration.getMethods();
+    for (EventHandlerMethod<T, ?> method : methods) {
+      addHandlerMethod(owner, method, scopeState);
+    }
+    if (eagerCaching) {
+      warmUpCacheForRegistration(methods);
+    }
+  }
+
+  /**
+   * Builds the handler cache for every class of event handled by the registered handlers, so that
+   * the first event of each class that is posted afterwards doesn't have to check every registered
+   * handler. This can be scheduled to run during idle time after startup, so that the cost isn't
+   * paid during the first user interaction. Caches can only be built in advance for handlers of
+   * concrete classes, not for handlers of interfaces, abstract classes, or {@link MultiEvent}s.
+   * Caches built this way are still updated as usual when events are posted.
+   */
+  public void warmUpCache() {
+    List<EventHandlerMethod<?, ?>> methods = new ArrayList<EventHandlerMethod<?, ?>>();
+    for (List<EventHandler<?, ?>> handlers : handlersByOwner.values()) {
+      for (EventHandler<?, ?> handler : handlers) {
+        methods.add(handler.method);
+      }
+    }
+    warmUpCache(methods);
+  }
+
+  /**
+   * Sets whether the handler cache should be built for the types handled by each object as soon as
+   * it is registered. This moves the cost of building the cache from the first post of each event
+   * class to registration time. Unlike {@link #warmUpCache}, only the cache entries for the classes
+   * handled by the new object and their supertypes are brought up to date, so that registering
+   * stays cheap as the cache grows. Disabled by default.
+   */
+  public void setEagerCaching(boolean eagerCaching) {
+    this.eagerCaching = eagerCaching;
+  }
+
+  // Adds cache entries for the classes handled by the given methods where possible, then brings
+  // every cache entry whose class hierarchy is known up to date with the registered handlers
+  private void warmUpCache(List<? extends EventHandlerMethod<?, ?>> methods) {
+    addCacheEntries(methods);
+    for (CacheEntry<?> cacheEntry : handlerCache.values()) {
+      if (cacheEntry.eventTypeHierarchy != null) {
+        cacheEntry.warm();
+      }
+    }
+  }
+
+  // Like warmUpCache, but only brings the entries for classes in the hierarchies of the given
+  // newly registered methods up to date. Other entries pick up the new handlers when their events
+  // are next posted, so registering doesn't get slower as the cache grows.
+  private void warmUpCacheForRegistration(List<? extends EventHandlerMethod<?, ?>> methods) {
+    addCacheEntries(methods);
+    for (EventHandlerMethod<?, ?> method : methods) {
+      Class<?>[] hierarchy = getEventTypeHierarchy(method);
+      if (hierarchy == null) {
+        continue;
+      }
+      for (Class<?> eventClass : hierarchy) {
+        CacheEntry<?> cacheEntry = handlerCache.get(eventClass);
+        if (cacheEntry != null && cacheEntry.eventTypeHierarchy != null) {
+          cacheEntry.warm();
+        }
+      }
+    }
+  }
+
+  // Adds cache entries with known class hierarchies for the classes handled by the given methods
+  private void addCacheEntries(List<? extends EventHandlerMethod<?, ?>> methods) {
+    for (EventHandlerMethod<?, ?> method : methods) {
+      Class<?>[] hierarchy = getEventTypeHierarchy(method);
+      if (hierarchy == null) {
+        continue;
+      }
+      CacheEntry<?> cacheEntry = handlerCache.get(hierarchy[0]);
+      if (cacheEntry == null) {
+        cacheEntry = newCacheEntry(hierarchy[0]);
+        handlerCache.put(hierarchy[0], cacheEntry);
+      }
+      cacheEntry.eventTypeHierarchy = hierarchy;
+    }
+  }
+
+  private static Class<?>[] getEventTypeHierarchy(EventHandlerMethod<?, ?> method) {
+    return method instanceof ClassBasedEventHandlerMethod
+        ? ((ClassBasedEventHandlerMethod<?, ?>) method).getEventTypeHierarchy()
+        : null;
+  }
+
+  /**
+   * Opens a new scope that objects can be registered through. Closing the scope unregisters all of
+   * those objects at once, doing work proportional only to the number of handlers in the scope.
+   *
+   * @return a new open scope for this event bus
+   */
+  public RegistrationScope openScope() {
+    RegistrationScope scope = new RegistrationScope(this);
+    openScopes.put(scope, new ScopeState());
+    return scope;
+  }
+
+  /** Unregisters all handlers in the given scope. Visible for {@link RegistrationScope}. */
+  void closeScope(RegistrationScope scope) {
+    ScopeState scopeState = openScopes.remove(scope);
+    if (scopeState == null) {
+      return;
+    }
+
+    // Nullify each handler that hasn't already been unregistered, removing it from its owner's
+    // handlers and forgetting owners that are left without any handlers
+    for (EventHandler<?, ?> handler : scopeState.handlers) {
+      if (handler.method == NULL_HANDLER_METHOD) {
+        continue;
+      }
+      Object owner = handler.getOwner();
+      List<EventHandler<?, ?>> ownerHandlers = handlersByOwner.get(handler.getOwnerKey());
+      if (ownerHandlers.size() > 1) {
+        ownerHandlers.remove(handler);
+      } else {
+        removeOwner(handler.getOwnerKey());
+        if (leakDetector != null && owner != null) {
+          leakDetector.onUnregister(owner);
+        }
+      }
+      resume(handler);
+      unpause(handler);
+      handler.nullify();
+    }
+
+    // Only the cache entries that picked up one of the scope's handlers need to be cleaned
+    for (CacheEntry<?> entry : scopeState.cacheEntries.keySet()) {
+      entry.removeNullifiedHandlers();
+    }
+  }
+
+  /** Returns whether the given scope is still open. Visible for {@link RegistrationScope}. */
+  boolean isScopeOpen(RegistrationScope scope) {
+    return openScopes.containsKey(scope);
+  }
+
+  /**
+   * Creates a group of objects of the same class that share a single handler for each of their
+   * handler methods. This uses much less memory than registering each object separately when there
+   * are many such objects. See {@link OwnerGroup} for details.
+   *
+   * @param registration the registration interface for objects in the group
+   * @return a new, empty group whose handlers are registered on this event bus
+   * @throws IllegalArgumentException if any of the registration's handlers are batched, throttled,
+   *           or debounced
+   */
+  public <T> OwnerGroup<T> createOwnerGroup(EventRegistration<T> registration) {
+    List<EventHandlerMethod<T, ?>> methods = registration.getMethods();
+    for (EventHandlerMethod<T, ?> method : methods) {
+      if (method instanceof ScheduledEventHandlerMethod) {
+        throw new IllegalArgumentException("Handlers that defer their invocations can't be shared "
+            + "by a group: " + method.getName());
+      }
+    }
+    OwnerGroup<T> group = new OwnerGroup<T>(this);
+    for (EventHandlerMethod<T, ?> method : methods) {
+      addHandlerMethod(group, newGroupMethod(this, method), null);
+    }
+    return group;
+  }
+
+  /** Adds an object to the given group. Visible for {@link OwnerGroup}. */
+  <T> void addToGroup(OwnerGroup<T> group, T owner) {
+    if (owner == null) {
+      throw new NullPointerException();
+    } else if (group.closed) {
+      throw new IllegalStateException("Group has already been closed");
+    }
+
+    // Make room by dropping the slots of removed objects if enough are free, or by growing
+    if (group.slotCount == group.owners.length) {
+      if (!group.dispatching && group.removedCount >= group.slotCount / 2) {
+        compactGroup(group);
+      } else {
+        Object[] owners = new Object[group.owners.length * 2];
+        System.arraycopy(group.owners, 0, owners, 0, group.slotCount);
+        group.owners = owners;
+      }
+    }
+    group.owners[group.slotCount++] = owner;
+    if (leakDetector != null) {
+      leakDetector.onRegister(owner);
+    }
+  }
+
+  /** Removes an object from the given group. Visible for {@link OwnerGroup}. */
+  <T> void removeFromGroup(OwnerGroup<T> group, T owner) {
+    // Search from the end, since recently added objects are often the first to be removed
+    for (int i = group.slotCount - 1; i >= 0; i--) {
+      if (group.owners[i] == owner) {
+        group.owners[i] = null;
+        group.removedCount++;
+        if (!group.dispatching && group.removedCount > group.slotCount / 2) {
+          compactGroup(group);
+        }
+        if (leakDetector != null) {
+          leakDetector.onUnregister(owner);
+        }
+
+        // Forget the object's circuit breaker and watchdog state, dropping any demoted invocations
+        // still waiting to be dispatched
+        List<EventHandler<?, ?>> groupHandlers = handlersByOwner.get(getOwnerKey(group));
+        if (groupHandlers != null) {
+          for (EventHandler<?, ?> handler : groupHandlers) {
+            EventHandler<?, ?> member = ((GroupMethod<?>) handler.method).removeMember(owner);
+            if (member != null) {
+              resume(member);
+              member.nullify();
+            }
+          }
+        }
+        return;
+      }
+    }
+    throw new IllegalArgumentException("Object is not in the group: " + owner);
+  }
+
+  /** Unregisters the handlers of the given group. Visible for {@link OwnerGroup}. */
+  void closeGroup(OwnerGroup<?> group) {
+    if (group.closed) {
+      return;
+    }
+    if (handlersByOwner.containsKey(getOwnerKey(group))) {
+      unregister(group);
+    }
+    for (int i = 0; i < group.slotCount; i++) {
+      if (group.owners[i] != null && leakDetector != null) {
+        leakDetector.onUnregister(group.owners[i]);
+      }
+      group.owners[i] = null;
+    }
+    group.slotCount = 0;
+    group.removedCount = 0;
+    group.closed = true;
+  }
+
+  // Moves the objects in the given group to the front of its array, dropping the slots of objects
+  // that were removed while preserving the order of the rest
+  private static void compactGroup(OwnerGroup<?> group) {
+    int count = 0;
+    for (int i = 0; i < group.slotCount; i++) {
+      if (group.owners[i] != null) {
+        group.owners[count++] = group.owners[i];
+      }
+    }
+    for (int i = count; i < group.slotCount; i++) {
+      group.owners[i] = null;
+    }
+    group.slotCount = count;
+    group.removedCount = 0;
+  }
+
+  // Wraps the given handler method so that it can be registered on behalf of a group
+  @SuppressWarnings("unchecked")
+  private static <T, E> GroupMethod<E> newGroupMethod(
+      EventBus eventBus, EventHandlerMethod<T, E> method) {
+    return new GroupMethod<E>(eventBus, (EventHandlerMethod<Object, E>) method);
+  }
+
+  /**
+   * Registers a single handler method on a given instance. Visible for
+   * {@link EventBusAdapter#addHandler}.
+   */
+  <T, E> void addHandlerMethod(T owner, EventHandlerMethod<T, E> method) {
+    addHandlerMethod(owner, method, null);
+  }
+
+  // Replaces the handler lists shared with the template with copies that this bus can modify. The
+  // copies start with the same handlers, so the indices in cache entries remain valid.
+  private void copyTemplateHandlers() {
+    Map<Integer, List<EventHandler<?, ?>>> copy = new HashMap<Integer, List<EventHandler<?, ?>>>();
+    for (Entry<Integer, List<EventHandler<?, ?>>> entry : allHandlersByPriority.entrySet()) {
+      copy.put(entry.getKey(), new ArrayList<EventHandler<?, ?>>(entry.getValue()));
+    }
+    allHandlersByPriority = copy;
+    sharesTemplateHandlers = false;
+  }
+
+  // Registers a single handler method, adding it to the given scope if it isn't null
+  private <T, E> void addHandlerMethod(T owner, EventHandlerMethod<T, E> method,
+      ScopeState scopeState) {
+    if (sharesTemplateHandlers) {
+      copyTemplateHandlers();
+    }
+    if (!allHandlersByPriority.containsKey(method.getDispatchOrder())) {
+      allHandlersByPriority.put(method.getDispatchOrder(), new ArrayList<EventHandler<?, ?>>());
+    }
+    Object ownerKey = getOwnerKey(owner);
+    List<EventHandler<?, ?>> ownerHandlers = handlersByOwner.get(ownerKey);
+    if (ownerHandlers == null) {
+      ownerKey = addOwner(owner);
+      ownerHandlers = new ArrayList<EventHandler<?, ?>>();
+      handlersByOwner.put(ownerKey, ownerHandlers);
+    }
+    final EventHandler<T, E> handler = ownerReferences == null
+        ? new EventHandler<T, E>(owner, method)
+        : new EventHandler<T, E>((OwnerReferences.Reference) ownerKey, owner, method);
+    allHandlersByPriority.get(method.getDispatchOrder()).add(handler);
+    ownerHandlers.add(handler);
+    if (scopeState != null) {
+      handler.scope = scopeState;
+      scopeState.handlers.add(handler);
+    }
+    // The objects in a group are tracked as they are added, and the group itself can't leak them
+    if (leakDetector != null && !(owner instanceof OwnerGroup)) {
+      leakDetector.onRegister(owner);
+    }
+
+    // Methods that may defer their invocations need a way to get back onto this bus later
+    if (method instanceof ScheduledEventHandlerMethod) {
+      ((ScheduledEventHandlerMethod<T, E>) method).attach(new DeferredDispatcher() {
+        @Override
+        public TaskScheduler.Task schedule(int delayMillis, Runnable command) {
+          return taskScheduler.schedule(delayMillis, command);
+        }
+
+        @Override
+        public void dispatch(Object payload) {
+          dispatchDeferred(handler, payload);
+        }
+      });
+    }
+  }
+
+  /**
+   * Unregisters all event handlers on the given object. After unregistering, {@link Subscribe}-
+   * annotated methods on that object will never be invoked when an event is posted (unless the
+   * object is registered again). This given object must have already been registered on the event
+   * bus.
+   *
+   * @param owner object whose handlers should be disabled. Must already have been registered via a
+   *          call to {@link #register}.
+   * @throws IllegalArgumentException if the given object was never registered on this event bus
+   */
+  public void unregister(Object owner) {
+    // Forget any handlers of the object that haven't been created yet
+    LazyRegistration<?> lazyRegistration = lazyRegistrationsByOwner.get(owner);
+    if (lazyRegistration != null) {
+      removeLazyRegistration(lazyRegistration);
+      trimLazyRegistrations();
+    }
+
+    // Ensure that the object is actually registered
+    List<EventHandler<?, ?>> ownerHandlers = removeOwner(getOwnerKey(owner));
+    if (ownerHandlers == null) {
+      if (lazyRegistration == null) {
+        throw new IllegalArgumentException("Object was never registered: " + owner);
+      }
+      if (leakDetector != null) {
+        leakDetector.onUnregister(owner);
+      }
+      return;
+    }
+
+    // Clear the object's entries from the global handler list. We can't actually remove entries,
+    // since this would break the indices stored in the cache. So replace removed entries with
+    // no-ops.
+    for (EventHandler<?, ?> handler : ownerHandlers) {
+      resume(handler);
+      unpause(handler);
+      handler.nullify();
+    }
+    if (leakDetector != null) {
+      leakDetector.onUnregister(owner);
+    }
+
+    // Remove the nullified handlers from the cache, so that they don't keep being queued
+    for (CacheEntry<?> entry : handlerCache.values()) {
+      entry.removeNullifiedHandlers();
+    }
+  }
+
+  // Returns the key under which the given object's handlers are stored in handlersByOwner, or null
+  // if the object is held through a reference and is not registered
+  private Object getOwnerKey(Object owner) {
+    if (ownerReferences == null) {
+      return owner;
+    }
+    List<OwnerReferences.Reference> references =
+        ownerReferencesByHash.get(System.identityHashCode(owner));
+    if (references != null) {
+      for (OwnerReferences.Reference reference : references) {
+        if (reference.get() == owner) {
+          return reference;
+        }
+      }
+    }
+    return null;
+  }
+
+  // Returns a new key under which the handlers of the given unregistered object will be stored
+  private Object addOwner(Object owner) {
+    if (ownerReferences == null) {
+      return owner;
+    }
+    OwnerReferences.Reference reference = ownerReferences.create(owner);
+    int hash = System.identityHashCode(owner);
+    List<OwnerReferences.Reference> references = ownerReferencesByHash.get(hash);
+    if (references == null) {
+      references = new ArrayList<OwnerReferences.Reference>(1);
+      ownerReferencesByHash.put(hash, references);
+    }
+    references.add(reference);
+    return reference;
+  }
+
+  // Removes and returns the handlers stored under the given key, or returns null if there are none
+  private List<EventHandler<?, ?>> removeOwner(Object ownerKey) {
+    List<EventHandler<?, ?>> ownerHandlers =
+        ownerKey == null ? null : handlersByOwner.remove(ownerKey);
+    if (ownerHandlers != null && ownerKey instanceof OwnerReferences.Reference) {
+      // The referenced object may already be gone, so use the hash remembered by its handlers
+      int hash = ownerHandlers.get(0).ownerHash;
+      List<OwnerReferences.Reference> references = ownerReferencesByHash.get(hash);
+      references.remove(ownerKey);
+      if (references.isEmpty()) {
+        ownerReferencesByHash.remove(hash);
+      }
+    }
+    return ownerHandlers;
+  }
+
+  /**
+   * Adds an exception handler to be notified whenever an exception occurs while dispatching an
+   * event. Exception handlers are invoked only after all handlers have had a chance to process an
+   * event - at that point, every exception that occurred during dispatch is wrapped in an
+   * {@link EventBusException} and posted to every exception handler.
+   *
+   * @param exceptionHandler handler to be notified when exceptions occur
+   */
+  public void addExceptionHandler(ExceptionHandler exceptionHandler) {
+    exceptionHandlers.add(exceptionHandler);
+  }
+
+  /**
+   * Sets the scheduler used to run handler invocations that are deferred until later, such as
+   * deliveries to handlers annotated with {@link com.ekuefler.supereventbus.batching.BatchWindow}.
+   * By default, work is scheduled using GWT's {@link Timer}.
+   *
+   * @param taskScheduler scheduler to use for all subsequently scheduled work
+   */
+  public void setTaskScheduler(TaskScheduler taskScheduler) {
+    if (taskScheduler == null) {
+      throw new NullPointerException();
+    }
+    this.taskScheduler = taskScheduler;
+  }
+
+  /**
+   * Installs a monitor that will be notified immediately before and after each handler method is
+   * invoked, replacing any previously installed monitor. Handlers aren't monitored by default, and
+   * monitoring has no cost when no monitor is installed.
+   *
+   * @param dispatchMonitor monitor to install, or <code>null</code> to stop monitoring
+   */
+  public void setDispatchMonitor(DispatchMonitor dispatchMonitor) {
+    this.dispatchMonitor = dispatchMonitor;
+  }
+
+  /**
+   * Starts recording posts and handler invocations to the given trace, replacing any previously
+   * installed trace. Nothing is recorded by default.
+   *
+   * @param dispatchTrace trace to record to, or <code>null</code> to stop recording
+   */
+  public void setDispatchTrace(DispatchTrace dispatchTrace) {
+    this.dispatchTrace = dispatchTrace;
+  }
+
+  /**
+   * Sets whether the event bus should keep track of which events caused which other events to be
+   * posted. If enabled, each event is assigned an increasing {@link DispatchContext#getId ID}, and
+   * the context of each event posted from within a handler is linked to the context of the event
+   * being handled via {@link DispatchContext#getParent}. The ancestry of an event can then be
+   * inspected from any handler via {@link #getCurrentDispatch} and from any
+   * {@link EventBusException}. Disabled by default.
+   *
+   * @param causalityTracking <code>true</code> to track the causes of events
+   */
+  public void setCausalityTracking(boolean causalityTracking) {
+    this.causalityTracking = causalityTracking;
+  }
+
+  /**
+   * Sets whether {@link EventBusException}s passed to exception handlers should be created without
+   * capturing their own stack traces. The stack trace of an {@link EventBusException} only ever
+   * shows the event bus's dispatch loop, and capturing it is expensive, especially in compiled
+   * JavaScript. The stack trace of the exception thrown by the handler is always available via
+   * {@link EventBusException#getCause}. Stack traces are captured by default.
+   * <p>
+   * Regardless of this setting, exceptions are only created at all if at least one exception
+   * handler is registered.
+   *
+   * @param lightweightExceptions <code>true</code> to skip capturing stack traces
+   */
+  public void setLightweightExceptions(boolean lightweightExceptions) {
+    this.lightweightExceptions = lightweightExceptions;
+  }
+
+  /**
+   * Configures a circuit breaker that suspends handler methods that fail repeatedly. When a handler
+   * method throws an exception on the given number of consecutive invocations, it stops receiving
+   * events and a {@link HandlerSuspendedException} is passed to the exception handlers. This avoids
+   * repeatedly paying for a broken handler's failures on every event. Suspended handlers can be
+   * resumed via {@link #resumeHandlers}, or automatically after the given backoff period using the
+   * event bus's {@link TaskScheduler}. The circuit breaker is disabled by default.
+   *
+   * @param failureThreshold number of consecutive failures after which a handler is suspended, or
+   *          zero to never suspend handlers
+   * @param backoffMillis number of milliseconds after which suspended handlers are resumed, or zero
+   *          if they should only be resumed manually
+   */
+  public void setCircuitBreaker(int failureThreshold, int backoffMillis) {
+    if (failureThreshold < 0 || backoffMillis < 0) {
+      throw new IllegalArgumentException("Threshold and backoff must not be negative");
+    }
+    this.failureThreshold = failureThreshold;
+    this.suspensionBackoffMillis = backoffMillis;
+  }
+
+  /**
+   * Configures limits that protect against event storms, such as a handler that posts an event that
+   * eventually causes the same handler to be invoked again. If an event would exceed either limit,
+   * the event is not queued, the waiting handler invocations for the rest of the cascade it belongs
+   * to are discarded, any further events posted by the handler currently running are ignored, and a
+   * {@link CascadeLimitException} describing the cascade is passed to the exception handlers.
+   * Invocations waiting for events of other cascades are unaffected. Only invocations that will
+   * actually run count toward the queue length, so paused, suspended, and demoted handlers don't.
+   * The peak values seen so far are available via {@link #stats}, which can help choose limits.
+   * Both limits are disabled by default.
+   *
+   * @param maxDepth maximum number of events in a cascade, as measured by
+   *          {@link DispatchContext#getDepth}, or zero for no limit
+   * @param maxQueueLength maximum number of handler invocations that may be waiting in the
+   *          dispatch queue at once, or zero for no limit
+   */
+  public void setCascadeLimits(int maxDepth, int maxQueueLength) {
+    if (maxDepth < 0 || maxQueueLength < 0) {
+      throw new IllegalArgumentException("Limits must not be negative");
+    }
+    this.maxCascadeDepth = maxDepth;
+    this.maxQueueLength = maxQueueLength;
+  }
+
+  /**
+   * Limits the number of event classes for which handlers are cached. When an event of a new class
+   * is posted and the cache is full, the entry for the least recently posted class is evicted, and
+   * is rebuilt if an event of that class is posted again. Rebuilding an entry requires checking
+   * every registered handler, so the limit should be at least the number of event classes that are
+   * regularly posted, which can be chosen using the cache counters reported by {@link #stats}. This
+   * keeps memory bounded in applications that post events of many short-lived classes, such as a
+   * different class for each type of RPC response. The cache is unlimited by default.
+   *
+   * @param maxEntries maximum number of cached event classes, or zero for no limit
+   */
+  public void setHandlerCacheLimit(int maxEntries) {
+    if (maxEntries < 0) {
+      throw new IllegalArgumentException("Limit must not be negative");
+    }
+    handlerCacheLimit = maxEntries;
+
+    // Only a limited cache needs to track access order, so keep using a plain map otherwise
+    Map<Class<?>, CacheEntry<?>> oldCache = handlerCache;
+    if (maxEntries == 0) {
+      handlerCache = new HashMap<Class<?>, CacheEntry<?>>(oldCache);
+      return;
+    }
+    handlerCache = new LinkedHashMap<Class<?>, CacheEntry<?>>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Entry<Class<?>, CacheEntry<?>> eldest) {
+        if (size() > handlerCacheLimit) {
+          cacheEvictionCount++;
+          forgetCacheEntry(eldest.getValue());
+          return true;
+        }
+        return false;
+      }
+    };
+    for (Entry<Class<?>, CacheEntry<?>> entry : oldCache.entrySet()) {
+      handlerCache.put(entry.getKey(), entry.getValue());
+    }
+  }
+
+  // Removes all references to a cache entry evicted from the cache, so that it can be collected
+  private void forgetCacheEntry(CacheEntry<?> entry) {
+    for (ScopeState scopeState : openScopes.values()) {
+      scopeState.cacheEntries.remove(entry);
+    }
+  }
+
+  /**
+   * Installs a watchdog that times each handler invocation, replacing any previously installed
+   * watchdog. Handlers aren't timed by default.
+   *
+   * @param watchdog watchdog to install, or <code>null</code> to stop timing handlers
+   */
+  public void setSlowHandlerWatchdog(SlowHandlerWatchdog watchdog) {
+    this.slowHandlerWatchdog = watchdog;
+  }
+
+  /**
+   * Installs a detector that tracks registered objects in order to find objects that are never
+   * unregistered, replacing any previously installed detector. Only objects registered after the
+   * detector is installed are tracked. Leaks aren't tracked by default.
+   *
+   * @param leakDetector detector to install, or <code>null</code> to stop tracking
+   */
+  public void setLeakDetector(RegistrationLeakDetector leakDetector) {
+    this.leakDetector = leakDetector;
+  }
+
+  /**
+   * Sets how registered objects are held by this event bus. By default, registered objects are held
+   * strongly, so they can't be garbage collected until they are unregistered. Installing an
+   * {@link OwnerReferences} that creates weak references, such as
+   * {@link com.ekuefler.supereventbus.jvm.WeakOwnerReferences} on the JVM, allows registered
+   * objects to be collected, after which their handlers are removed the next time an event is
+   * posted. This must be called before any objects are registered.
+   *
+   * @param ownerReferences factory for references to registered objects, or null to hold registered
+   *          objects strongly
+   * @throws IllegalStateException if any objects are registered
+   */
+  public void setOwnerReferences(OwnerReferences ownerReferences) {
+    if (!handlersByOwner.isEmpty() || !lazyRegistrationsByOwner.isEmpty()) {
+      throw new IllegalStateException("Owner references must be set before registering objects");
+    }
+    this.ownerReferences = ownerReferences;
+  }
+
+  /**
+   * Resumes all suspended handler methods on the given object, allowing them to receive events
+   * again. Also restores any of the object's handlers demoted by the {@link SlowHandlerWatchdog}
+   * to the synchronous dispatch and resets their count of slow invocations. Has no effect on
+   * handlers that are not suspended or demoted.
+   *
+   * @param owner object whose handlers should be resumed
+   */
+  public void resumeHandlers(Object owner) {
+    List<EventHandler<?, ?>> ownerHandlers = handlersByOwner.get(getOwnerKey(owner));
+    if (ownerHandlers != null) {
+      for (EventHandler<?, ?> handler : ownerHandlers) {
+        resume(handler);
+      }
+    }
+  }
+
+  /**
+   * Pauses all handler methods on the given object, so that they are skipped until they are
+   * unpaused via {@link #unpauseHandlers}. Unlike unregistering and re-registering an object,
+   * pausing and unpausing just flips a flag on each of the object's handlers, and unlike a
+   * {@link com.ekuefler.supereventbus.filtering.When} filter, a paused handler costs nothing when
+   * events are posted. This makes pausing a good fit for objects that are frequently hidden and
+   * shown, like inactive tabs. Events posted while a handler is paused are never delivered to it,
+   * including any deferred deliveries to batched, throttled, or debounced handlers that come due
+   * while it is paused.
+   *
+   * @param owner registered object whose handlers should be paused
+   * @throws IllegalArgumentException if the object is not registered
+   */
+  public void pauseHandlers(Object owner) {
+    addAllLazyHandlers(owner);
+    List<EventHandler<?, ?>> ownerHandlers = handlersByOwner.get(getOwnerKey(owner));
+    if (ownerHandlers == null) {
+      throw new IllegalArgumentException("Object was never registered: " + owner);
+    }
+    for (EventHandler<?, ?> handler : ownerHandlers) {
+      if (!handler.paused) {
+        handler.paused = true;
+        pausedHandlerCount++;
+      }
+    }
+  }
+
+  /**
+   * Unpauses all handler methods on the given object that were paused via {@link #pauseHandlers},
+   * so that they receive subsequently posted events. Has no effect if the object's handlers are not
+   * paused.
+   *
+   * @param owner registered object whose handlers should be unpaused
+   * @throws IllegalArgumentException if the object is not registered
+   */
+  public void unpauseHandlers(Object owner) {
+    addAllLazyHandlers(owner);
+    List<EventHandler<?, ?>> ownerHandlers = handlersByOwner.get(getOwnerKey(owner));
+    if (ownerHandlers == null) {
+      throw new IllegalArgumentException("Object was never registered: " + owner);
+    }
+    for (EventHandler<?, ?> handler : ownerHandlers) {
+      unpause(handler);
+    }
+  }
+
+  // Unpauses the given handler if it is paused
+  private void unpause(EventHandler<?, ?> handler) {
+    if (handler.paused) {
+      handler.paused = false;
+      pausedHandlerCount--;
+    }
+  }
+
+  /**
+   * Sets the policy determining what happens when an event is posted that has no handlers. By
+   * default, a {@link DeadEvent} is posted for every such event.
+   *
+   * @param deadEventPolicy policy to use for all subsequently posted events
+   */
+  public void setDeadEventPolicy(DeadEventPolicy deadEventPolicy) {
+    if (deadEventPolicy == null) {
+      throw new NullPointerException();
+    }
+    this.deadEventPolicy = deadEventPolicy;
+  }
+
+  /**
+   * Returns the number of events without handlers that were posted for each event class since the
+   * last call to this method, and resets all counts to zero. Counts are only recorded while the
+   * {@link DeadEventPolicy#AGGREGATED} policy is in effect.
+   *
+   * @return a map from event classes to the number of events of that class that had no handlers
+   */
+  public Map<Class<?>, Integer> drainDeadEventCounts() {
+    Map<Class<?>, Integer> result = new HashMap<Class<?>, Integer>();
+    for (Entry<Class<?>, int[]> entry : deadEventCountsByClass.entrySet()) {
+      result.put(entry.getKey(), entry.getValue()[0]);
+    }
+    deadEventCountsByClass = new HashMap<Class<?>, int[]>();
+    return result;
+  }
+
+  /**
+   * Returns a snapshot of statistics describing the current state of this event bus. Taking a
+   * snapshot takes time proportional to the number of registered handlers and cached event types,
+   * which is cheap enough to do periodically, such as from a debugging overlay.
+   */
+  public EventBusStats stats() {
+    EventBusStats stats = new EventBusStats();
+    eventsToDispatch.addStats(stats);
+
+    // Count the distinct owners of each class, counting the objects in each group individually and
+    // including objects registered lazily whose handlers haven't been created
+    for (List<EventHandler<?, ?>> ownerHandlers : handlersByOwner.values()) {
+      Object owner = ownerHandlers.get(0).getOwner();
+      if (owner instanceof OwnerGroup) {
+        OwnerGroup<?> group = (OwnerGroup<?>) owner;
+        for (int i = 0; i < group.slotCount; i++) {
+          if (group.owners[i] != null) {
+            countOwner(stats, group.owners[i]);
+          }
+        }
+      } else if (owner != null) {
+        countOwner(stats, owner);
+      }
+    }
+    for (Object owner : lazyRegistrationsByOwner.keySet()) {
+      // Objects with some handlers already created were counted above
+      if (!handlersByOwner.containsKey(owner)) {
+        countOwner(stats, owner);
+      }
+    }
+
+    // Count live and unregistered handlers at each priority
+    int handlerCount = 0;
+    for (Entry<Integer, List<EventHandler<?, ?>>> entry : allHandlersByPriority.entrySet()) {
+      int liveCount = 0;
+      for (EventHandler<?, ?> handler : entry.getValue()) {
+        if (handler.method != NULL_HANDLER_METHOD) {
+          liveCount++;
+        }
+      }
+      // Handlers are keyed by dispatch order, which is the inverse of their priority
+      stats.liveHandlerCounts.put(-entry.getKey(), liveCount);
+      stats.tombstoneCounts.put(-entry.getKey(), entry.getValue().size() - liveCount);
+      handlerCount += entry.getValue().size();
+    }
+
+    stats.lazyRegistrationCount = lazyRegistrationsByOwner.size();
+
+    // Measure the cache
+    stats.cacheEntryCount = handlerCache.size();
+    stats.cacheHitCount = cacheHitCount;
+    stats.cacheMissCount = cacheMissCount;
+    stats.cacheEvictionCount = cacheEvictionCount;
+    for (CacheEntry<?> entry : handlerCache.values()) {
+      int size = entry.size();
+      stats.cachedHandlerCount += size;
+      stats.largestCacheEntrySize = Math.max(stats.largestCacheEntrySize, size);
+    }
+
+    stats.estimatedMemoryBytes = handlerCount * BYTES_PER_HANDLER
+        + stats.cachedHandlerCount * BYTES_PER_CACHED_HANDLER
+        + stats.cacheEntryCount * BYTES_PER_CACHE_ENTRY
+        + (stats.queueLength + demotedInvocations.size()) * BYTES_PER_QUEUED_INVOCATION;
+
+    stats.consumedEventCount = consumedEventCount;
+    stats.skippedHandlerCount = skippedHandlerCount;
+    stats.peakCascadeDepth = peakCascadeDepth;
+    stats.cascadeLimitCount = cascadeLimitCount;
+    stats.slowInvocationCount = slowInvocationCount;
+    stats.slowHandlerCount = slowHandlerCount;
+    stats.demotedHandlerCount = demotedHandlerCount;
+    stats.demotedInvocationCount = demotedInvocationCount;
+    stats.pausedHandlerCount = pausedHandlerCount;
+    stats.deadEventCount = deadEventCount;
+    stats.handlerSuspensionCount = handlerSuspensionCount;
+    stats.suspendedHandlerCount = suspendedHandlerCount;
+    stats.collectedOwnerCount = collectedOwnerCount;
+    return stats;
+  }
+
+  // Counts the given owner in the stats for its class
+  private static void countOwner(EventBusStats stats, Object owner) {
+    Integer ownerCount = stats.ownerCountsByClass.get(owner.getClass());
+    stats.ownerCountsByClass.put(owner.getClass(), ownerCount == null ? 1 : ownerCount + 1);
+  }
+
+  /** A handler method combined with a specific instance of a class declaring that method. */
+  private static class EventHandler<I, A> {
+    // The object on which the handler is defined, which is held either directly or through a
+    // reference along with the object's identity hash code
+    I owner;
+    OwnerReferences.Reference ownerReference;
+    int ownerHash;
+    EventHandlerMethod<I, A> method;
+
+    // Circuit breaker state for this handler
+    int consecutiveFailures;
+    boolean suspended;
+    TaskScheduler.Task resumeTask;
+
+    // Watchdog state for this handler
+    int slowInvocations;
+    boolean demoted;
+
+    // Whether this handler has been paused via pauseHandlers
+    boolean paused;
+
+    // Scope this handler was registered through, or null if it wasn't registered in a scope
+    ScopeState scope;
+
+    // Whether this handler belongs to a frozen template and is shared by all of its copies
+    boolean shared;
+
+    EventHandler(I owner, EventHandlerMethod<I, A> method) {
+      this.owner = owner;
+      this.method = method;
+    }
+
+    EventHandler(
+        OwnerReferences.Reference ownerReference, I owner, EventHandlerMethod<I, A> method) {
+      this.ownerReference = ownerReference;
+      this.ownerHash = System.identityHashCode(owner);
+      this.method = method;
+    }
+
+    /** Returns the handler's owner, or null if it was unregistered or garbage collected. */
+    @SuppressWarnings("unchecked")
+    I getOwner() {
+      return ownerReference == null ? owner : (I) ownerReference.get();
+    }
+
+    /** Returns the key under which this handler is stored in handlersByOwner. */
+    Object getOwnerKey() {
+      return ownerReference == null ? owner : ownerReference;
+    }
+
+    @SuppressWarnings("unchecked")
+    void nullify() {
+      if (method instanceof ScheduledEventHandlerMethod) {
+        ((ScheduledEventHandlerMethod<I, A>) method).detach();
+      } else if (method instanceof GroupMethod) {
+        ((GroupMethod<?>) method).removeMembers();
+      }
+      cancelResumeTask();
+      owner = null;
+      ownerReference = null;
+      method = (EventHandlerMethod<I, A>) NULL_HANDLER_METHOD;
+      scope = null;
+    }
+
+    void cancelResumeTask() {
+      if (resumeTask != null) {
+        resumeTask.cancel();
+        resumeTask = null;
+      }
+    }
+  }
+
+  /** A handler method that posts events on the parent bus, which is passed as its instance. */
+  private static class ForwardingMethod implements EventHandlerMethod<Object, Object> {
+    private final EventPriority priority;
+
+    ForwardingMethod(EventPriority priority) {
+      this.priority = priority;
+    }
+
+    @Override
+    public boolean invoke(Object instance, Object arg) {
+      ((EventBus) instance).post(arg, priority);
+      return true;
+    }
+
+    @Override
+    public boolean acceptsArgument(Object arg) {
+      return true;
+    }
+
+    @Override
+    public int getDispatchOrder() {
+      return 0;
+    }
+
+    @Override
+    public String getName() {
+      return "forwardToParent";
+    }
+  }
+
+  /**
+   * A handler method shared by every object in an {@link OwnerGroup}, whose owner is the group.
+   * Invoking it delivers the event being dispatched to each object in the group in turn, handling
+   * failures, slow invocations, and consumed events per object.
+   */
+  private static class GroupMethod<E> implements ClassBasedEventHandlerMethod<Object, E> {
+    final EventBus eventBus;
+    final EventHandlerMethod<Object, E> delegate;
+
+    // Handlers holding the circuit breaker and watchdog state of objects in the group that have
+    // failed or run slowly, or null if none have. Other objects need no state of their own.
+    Map<Object, EventHandler<Object, E>> members = null;
+
+    GroupMethod(EventBus eventBus, EventHandlerMethod<Object, E> delegate) {
+      this.eventBus = eventBus;
+      this.delegate = delegate;
+    }
+
+    /** Returns the handler holding the state of the given object, or null if it has none. */
+    EventHandler<Object, E> getMember(Object owner) {
+      return members == null ? null : members.get(owner);
+    }
+
+    /** Returns the handler holding the state of the given object, creating it if needed. */
+    EventHandler<Object, E> getOrAddMember(Object owner) {
+      if (members == null) {
+        members = new IdentityHashMap<Object, EventHandler<Object, E>>();
+      }
+      EventHandler<Object, E> member = members.get(owner);
+      if (member == null) {
+        member = new EventHandler<Object, E>(owner, delegate);
+        members.put(owner, member);
+      }
+      return member;
+    }
+
+    /** Removes and returns the handler holding the state of the given object, if it has one. */
+    EventHandler<Object, E> removeMember(Object owner) {
+      return members == null ? null : members.remove(owner);
+    }
+
+    /** Discards the state of all objects, so that their demoted invocations are dropped. */
+    void removeMembers() {
+      if (members != null) {
+        for (EventHandler<Object, E> member : members.values()) {
+          member.nullify();
+        }
+        members = null;
+      }
+    }
+
+    @Override
+    public boolean invoke(Object instance, E arg) {
+      return eventBus.dispatchToGroup((OwnerGroup<?>) instance, this, arg);
+    }
+
+    @Override
+    public boolean acceptsArgument(Object arg) {
+      return delegate.acceptsArgument(arg);
+    }
+
+    @Override
+    public int getDispatchOrder() {
+      return delegate.getDispatchOrder();
+    }
+
+    @Override
+    public String getName() {
+      return delegate.getName();
+    }
+
+    // Groups match exactly the events their objects' handlers would, so they share their answers
+
+    @Override
+    public Object getMatchingKey() {
+      return delegate instanceof ClassBasedEventHandlerMethod
+          ? ((ClassBasedEventHandlerMethod<Object, E>) delegate).getMatchingKey()
+          : null;
+    }
+
+    @Override
+    public Class<?> getEventType() {
+      return delegate instanceof ClassBasedEventHandlerMethod
+          ? ((ClassBasedEventHandlerMethod<Object, E>) delegate).getEventType()
+          : null;
+    }
+
+    @Override
+    public Class<?>[] getEventTypeHierarchy() {
+      return delegate instanceof ClassBasedEventHandlerMethod
+          ? ((ClassBasedEventHandlerMethod<Object, E>) delegate).getEventTypeHierarchy()
+          : null;
+    }
+  }
+
+  /** Bookkeeping for an open {@link RegistrationScope}. */
+  private static class ScopeState {
+    // Handlers registered through the scope
+    final List<EventHandler<?, ?>> handlers = new ArrayList<EventHandler<?, ?>>();
+
+    // Set of cache entries that contain at least one of the scope's handlers
+    final Map<CacheEntry<?>, Boolean> cacheEntries = new IdentityHashMap<CacheEntry<?>, Boolean>();
+  }
+
+  /** An object registered via {@link #registerLazily} with handlers that haven't been created. */
+  private static class LazyRegistration<T> {
+    final T owner;
+    final EventRegistration<T> registration;
+
+    // Index of this registration in the list of lazy registrations
+    int index;
+
+    // Which of the object's handler methods have had handlers created, and how many haven't, or
+    // null until the first handler is created
+    boolean[] added;
+    int remaining;
+
+    LazyRegistration(T owner, EventRegistration<T> registration, int index) {
+      this.owner = owner;
+      this.registration = registration;
+      this.index = index;
+    }
+  }
+
+  /** An event handler combined with a specific event to handle. */
+  private static class EventWithHandler<I, A> {
+    final A event;
+    final EventHandler<I, A> handler;
+    final DispatchContext context;
+
+    EventWithHandler(A event, EventHandler<I, A> handler, DispatchContext context) {
+      this.event = event;
+      this.handler = handler;
+      this.context = context;
+    }
+
+    @SuppressWarnings("unchecked")
+    DispatchOutcome dispatch() {
+      // Scheduled methods can report events that they defer as well as events that they reject
+      if (handler.method instanceof ScheduledEventHandlerMethod) {
+        return ((ScheduledEventHandlerMethod<I, A>) handler.method).handle(
+            handler.getOwner(), event);
+      }
+      return handler.method.invoke(handler.getOwner(), event)
+          ? DispatchOutcome.INVOKED
+          : DispatchOutcome.REJECTED;
+    }
+  }
+
+  /**
+   * A deferred delivery from a {@link ScheduledEventHandlerMethod}, which is dropped if the handler
+   * was unregistered after the delivery was queued.
+   */
+  private static class DeferredDelivery extends EventWithHandler<Object, Object> {
+    DeferredDelivery(
+        Object payload, EventHandler<Object, Object> handler, DispatchContext context) {
+      super(payload, handler, context);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    DispatchOutcome dispatch() {
+      if (handler.method instanceof ScheduledEventHandlerMethod
+          && ((ScheduledEventHandlerMethod<Object, Object>) handler.method)
+              .deliver(handler.getOwner(), event)) {
+        return DispatchOutcome.INVOKED;
+      }
+      return DispatchOutcome.REJECTED;
+    }
+  }
+
+  /**
+   * A record of a handler that threw an exception, which is only turned into an
+   * {@link EventBusException} if an exception handler needs to be notified.
+   */
+  private static class Failure {
+    final Exception cause;
+    final Object owner;
+    final DispatchContext context;
+
+    // Exception created up front for rare problems detected by the event bus itself, such as a
+    // handler being suspended, or null if this is an ordinary handler failure
+    final EventBusException exception;
+
+    Failure(Exception cause, Object owner, DispatchContext context) {
+      this.cause = cause;
+      this.owner = owner;
+      this.context = context;
+      this.exception = null;
+    }
+
+    Failure(EventBusException exception) {
+      this.cause = null;
+      this.owner = null;
+      this.context = null;
+      this.exception = exception;
+    }
+
+    EventBusException toException(boolean lightweight) {
+      if (exception != null) {
+        return exception;
+      } else if (lightweight) {
+        return EventBusException.withoutStackTrace(cause, owner, context);
+      } else {
+        return new EventBusException(cause, owner, context);
+      }
+    }
+  }
+
+  /**
+   * A queue of handler invocations divided into lanes by event priority. Invocations are removed
+   * from the highest-priority non-empty lane first, and in FIFO order within each lane.
+   */
+  private static class DispatchQueue {
+    private final List<Queue<EventWithHandler<?, ?>>> lanes =
+        new ArrayList<Queue<EventWithHandler<?, ?>>>();
+    private final int[] peakDepths = new int[EventPriority.values().length];
+    private final int[] enqueuedCounts = new int[EventPriority.values().length];
+    private int size = 0;
+    private int peakSize = 0;
+
+    DispatchQueue() {
+      // Lanes are indexed by ordinal, so the highest priority comes first
+      for (int i = 0; i < EventPriority.values().length; i++) {
+        lanes.add(new LinkedList<EventWithHandler<?, ?>>());
+      }
+    }
+
+    void add(EventPriority priority, EventWithHandler<?, ?> eventWithHandler) {
+      int lane = priority.ordinal();
+      Queue<EventWithHandler<?, ?>> queue = lanes.get(lane);
+      queue.add(eventWithHandler);
+      enqueuedCounts[lane]++;
+      if (queue.size() > peakDepths[lane]) {
+        peakDepths[lane] = queue.size();
+      }
+      if (++size > peakSize) {
+        peakSize = size;
+      }
+    }
+
+    /** Removes and returns the next invocation to dispatch, or null if the queue is empty. */
+    EventWithHandler<?, ?> poll() {
+      for (Queue<EventWithHandler<?, ?>> queue : lanes) {
+        if (!queue.isEmpty()) {
+          size--;
+          return queue.poll();
+        }
+      }
+      return null;
+    }
+
+    /** Returns the number of invocations waiting in all lanes. */
+    int size() {
+      return size;
+    }
+
+    /** Discards all waiting invocations for events in the cascade started by the given root. */
+    void removeCascade(DispatchContext root) {
+      for (Queue<EventWithHandler<?, ?>> queue : lanes) {
+        for (Iterator<EventWithHandler<?, ?>> it = queue.iterator(); it.hasNext();) {
+          DispatchContext context = it.next().context;
+          if (context != null && context.getRoot() == root) {
+            it.remove();
+            size--;
+          }
+        }
+      }
+    }
+
+    void addStats(EventBusStats stats) {
+      stats.queueDepths = new int[lanes.size()];
+      for (int i = 0; i < lanes.size(); i++) {
+        stats.queueDepths[i] = lanes.get(i).size();
+      }
+      stats.peakQueueDepths = copyOf(peakDepths);
+      stats.enqueuedCounts = copyOf(enqueuedCounts);
+      stats.queueLength = size;
+      stats.peakQueueLength = peakSize;
+    }
+
+    private static int[] copyOf(int[] array) {
+      int[] copy = new int[array.length];
+      System.arraycopy(array, 0, copy, 0, array.length);
+      return copy;
+    }
+  }
+
+  /** Default scheduler, which runs commands using GWT timers. */
+  private static class TimerTaskScheduler implements TaskScheduler {
+    @Override
+    public Task schedule(int delayMillis, final Runnable command) {
+      final Timer timer = new Timer() {
+        @Override
+        public void run() {
+          command.run();
+        }
+      };
+      timer.schedule(delayMillis);
+      return new Task() {
+        @Override
+        public void cancel() {
+          timer.cancel();
+        }
+      };
+    }
+  }
+
+  /**
+   * An entry in the handler cache for event classes, containing a list of known handlers and the
+   * index of the last handler checked.
+   */
+  private class CacheEntry<T> {
+    // Map from priority levels to a list of known event handlers for this type at that priority.
+    // The map is updated whenever an event is fired.
+    private final SortedMap<Integer, List<EventHandler<?, T>>> knownHandlersByPriority =
+        new TreeMap<Integer, List<EventHandler<?, T>>>();
+
+    // Map from priority levels to the last corresponding index in the global handler list that was
+    // checked at that priority. When updating the cache, we continue from this index in order to
+    // avoid having to re-scan entries that were already cached.
+    private final Map<Integer, Integer> nextHandlerToCheckByPriority =
+        new HashMap<Integer, Integer>();
+
+    // The entry's event class followed by all of its supertypes, or null if it isn't known. If it
+    // is known, the entry can be updated before any events of the class are posted.
+    Class<?>[] eventTypeHierarchy;
+
+    // Index of the next lazy registration whose handlers must be created for this entry's class
+    // before it is updated. This isn't copied from a template, which has its own registrations.
+    int nextLazyRegistrationToCheck = 0;
+
+    CacheEntry() {}
+
+    /** Creates a copy of the given entry from a template bus. */
+    CacheEntry(CacheEntry<T> templateEntry) {
+      for (Entry<Integer, List<EventHandler<?, T>>> entry
+          : templateEntry.knownHandlersByPriority.entrySet()) {
+        knownHandlersByPriority.put(
+            entry.getKey(), new LinkedList<EventHandler<?, T>>(entry.getValue()));
+      }
+      nextHandlerToCheckByPriority.putAll(templateEntry.nextHandlerToCheckByPriority);
+      eventTypeHierarchy = templateEntry.eventTypeHierarchy;
+    }
+
+    /** Updates this cache, ensuring it contains all handlers for the given event type. */
+    void update(T event) {
+      // Matches found here that aren't yet shared with other event buses
+      Map<Object, Boolean> newMatches = null;
 
-    /** Updates this cache, ensuring it contains all handlers for the given event type. */
-    void update(T event) {
       // Check each priority level in the global handler map
       for (Entry<Integer, List<EventHandler<?, ?>>> entry : allHandlersByPriority.entrySet()) {
         int priority = entry.getKey();
@@ -390,12 +2567,114 @@ public class EventBus {
           int nextHandlerToCheck = nextHandlerToCheckByPriority.get(priority);
           @SuppressWarnings("unchecked")
           EventHandler<?, T> handler = (EventHandler<?, T>) handlers.get(nextHandlerToCheck);
-          // Add this handler to the cache only if it is appropriate for the given event
-          if (handler.method.acceptsArgument(event)) {
-            knownHandlersByPriority.get(priority).add(handler);
+          // Add this handler to the cache only if it is appropriate for the given event. If the
+          // method's answer can be shared, look it up rather than asking the method again.
+          Object matchingKey = handler.method instanceof ClassBasedEventHandlerMethod
+              ? ((ClassBasedEventHandlerMethod<?, T>) handler.method).getMatchingKey()
+              : null;
+          Boolean matches = null;
+          if (matchingKey != null) {
+            matches = newMatches != null ? newMatches.get(matchingKey) : null;
+            if (matches == null) {
+              matches = MatchingCache.getMatch(event.getClass(), matchingKey);
+            }
+          }
+          if (matches == null) {
+            matches = handler.method.acceptsArgument(event);
+            if (matchingKey != null) {
+              if (newMatches == null) {
+                newMatches = new HashMap<Object, Boolean>();
+              }
+              newMatches.put(matchingKey, matches);
+            }
+          }
+          if (matches) {
+            addKnownHandler(priority, handler);
+          }
+        }
+      }
+      if (newMatches != null) {
+        MatchingCache.addMatches(event.getClass(), newMatches);
+      }
+    }
+
+    /**
+     * Updates this cache without an event, using the event class hierarchy to decide which handlers
+     * match. At each priority, stops at the first handler that can't be decided this way, leaving
+     * it and the handlers after it to be checked the next time an event is posted.
+     */
+    void warm() {
+      for (Entry<Integer, List<EventHandler<?, ?>>> entry : allHandlersByPriority.entrySet()) {
+        int priority = entry.getKey();
+        List<EventHandler<?, ?>> handlers = entry.getValue();
+        if (!knownHandlersByPriority.containsKey(priority)) {
+          knownHandlersByPriority.put(priority, new LinkedList<EventHandler<?, T>>());
+          nextHandlerToCheckByPriority.put(priority, 0);
+        }
+        for (; nextHandlerToCheckByPriority.get(priority) < handlers.size(); increment(priority)) {
+          @SuppressWarnings("unchecked")
+          EventHandler<?, T> handler = (EventHandler<?, T>) handlers.get(
+              nextHandlerToCheckByPriority.get(priority));
+          Class<?> eventType = handler.method instanceof ClassBasedEventHandlerMethod
+              ? ((ClassBasedEventHandlerMethod<?, T>) handler.method).getEventType()
+              : null;
+          if (handler.method == NULL_HANDLER_METHOD) {
+            continue;
+          } else if (eventType == null) {
+            break;
           }
+          for (Class<?> supertype : eventTypeHierarchy) {
+            if (supertype == eventType) {
+              addKnownHandler(priority, handler);
+              break;
+            }
+          }
+        }
+      }
+    }
+
+    // Adds a matching handler at the given priority to this entry
+    private void addKnownHandler(int priority, EventHandler<?, T> handler) {
+      knownHandlersByPriority.get(priority).add(handler);
+      if (handler.scope != null) {
+        handler.scope.cacheEntries.put(this, true);
+      }
+    }
+
+    /**
+     * Returns whether this cache already contains every registered handler for its event type, in
+     * which case it doesn't need to be updated before being used.
+     */
+    boolean isUpToDate() {
+      if (nextLazyRegistrationToCheck < lazyRegistrations.size()) {
+        return false;
+      }
+      for (Entry<Integer, List<EventHandler<?, ?>>> entry : allHandlersByPriority.entrySet()) {
+        Integer nextHandlerToCheck = nextHandlerToCheckByPriority.get(entry.getKey());
+        if (nextHandlerToCheck == null || nextHandlerToCheck < entry.getValue().size()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /** Returns whether any handlers are known for this entry's event type. */
+    boolean hasHandlers() {
+      for (List<EventHandler<?, T>> handlerList : knownHandlersByPriority.values()) {
+        if (!handlerList.isEmpty()) {
+          return true;
         }
       }
+      return false;
+    }
+
+    /** Returns the number of known handlers for this entry's event type. */
+    int size() {
+      int size = 0;
+      for (List<EventHandler<?, T>> handlerList : knownHandlersByPriority.values()) {
+        size += handlerList.size();
+      }
+      return size;
     }
 
     /** Returns all known handlers for this entry's event type, sorted by priority. */
@@ -407,11 +2686,14 @@ public class EventBus {
       return result;
     }
 
-    /** Removes all handlers registered on the given object from this cache entry. */
-    void removeHandlersForOwner(Object owner) {
+    /**
+     * Removes all handlers that have been nullified from this cache entry. The owners of these
+     * handlers have already been cleared, so they can't be matched by owner.
+     */
+    void removeNullifiedHandlers() {
       for (List<EventHandler<?, T>> handlerList : knownHandlersByPriority.values()) {
         for (Iterator<EventHandler<?, T>> it = handlerList.iterator(); it.hasNext();) {
-          if (owner == it.next().owner) {
+          if (it.next().method == NULL_HANDLER_METHOD) {
             it.remove();
           }
         }
@@ -52,8 +52,9 @@ public class EventBusAdapter extends com.google.web.bindery.event.shared.EventBu
   public <H> HandlerRegistration addHandler(final Type<H> type, final H handler) {
     eventBus.addHandlerMethod(handler, new EventHandlerMethod<Object, Event<H>>() {
       @Override
-      public void invoke(Object instance, Event<H> arg) {
+      public boolean invoke(Object instance, Event<H> arg) {
         dispatchEvent(arg, handler);
+        return true;
       }
 
       @Override
@@ -65,6 +66,11 @@ public class EventBusAdapter extends com.google.web.bindery.event.shared.EventBu
       public int getDispatchOrder() {
         return 0;
       }
+
+      @Override
+      public String getName() {
+        return "dispatchEvent(Event)";
+      }
     });
     return new HandlerRegistration() {
       @Override
@@ -24,11 +24,28 @@ package com.ekuefler.supereventbus;
 public class EventBusException extends Exception {
   private final Object source;
   private final Object event;
+  private final DispatchContext context;
 
-  EventBusException(Exception cause, Object source, Object event) {
+  EventBusException(Exception cause, Object source, DispatchContext context) {
     super(cause);
     this.source = source;
-    this.event = event;
+    this.event = context.getEvent();
+    this.context = context;
+  }
+
+  /**
+   * Creates an exception that doesn't capture a stack trace of its own. The stack trace of the
+   * wrapper only ever shows the event bus's dispatch loop, while the stack trace of the underlying
+   * exception is still available via the cause, so capturing it is usually wasted work.
+   */
+  static EventBusException withoutStackTrace(
+      Exception cause, Object source, DispatchContext context) {
+    return new EventBusException(cause, source, context) {
+      @Override
+      public Throwable fillInStackTrace() {
+        return this;
+      }
+    };
   }
 
   /**
@@ -46,4 +63,13 @@ public class EventBusException extends Exception {
   public Object getSource() {
     return source;
   }
+
+  /**
+   * Returns the context in which the underlying exception was thrown. If causality tracking is
+   * enabled via {@link EventBus#setCausalityTracking}, the context can be used to find the chain of
+   * events that led to the exception.
+   */
+  public DispatchContext getDispatchContext() {
+    return context;
+  }
 }
\ No newline at end of file
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+import com.ekuefler.supereventbus.priority.EventPriority;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * A snapshot of statistics describing the internal state of an {@link EventBus}, returned by
+ * {@link EventBus#stats}. Snapshots are not updated after they are taken.
+ *
+ * @author ekuefler@gmail.com (Erik Kuefler)
+ */
+public class EventBusStats {
+
+  // Fields are populated by the event bus when the snapshot is taken
+  int[] queueDepths;
+  int[] peakQueueDepths;
+  int[] enqueuedCounts;
+  int queueLength;
+  int peakQueueLength;
+  int peakCascadeDepth;
+  int cascadeLimitCount;
+  int slowInvocationCount;
+  int slowHandlerCount;
+  int demotedHandlerCount;
+  int demotedInvocationCount;
+  int pausedHandlerCount;
+  final SortedMap<Integer, Integer> liveHandlerCounts = new TreeMap<Integer, Integer>();
+  final SortedMap<Integer, Integer> tombstoneCounts = new TreeMap<Integer, Integer>();
+  final Map<Class<?>, Integer> ownerCountsByClass = new HashMap<Class<?>, Integer>();
+  int cacheEntryCount;
+  int cacheHitCount;
+  int cacheMissCount;
+  int cacheEvictionCount;
+  int cachedHandlerCount;
+  int largestCacheEntrySize;
+  int estimatedMemoryBytes;
+  int consumedEventCount;
+  int skippedHandlerCount;
+  int deadEventCount;
+  int handlerSuspensionCount;
+  int suspendedHandlerCount;
+  int collectedOwnerCount;
+  int lazyRegistrationCount;
+
+  EventBusStats() {}
+
+  /**
+   * Returns the number of handler invocations waiting in the dispatch queue for the given event
+   * priority.
+   */
+  public int getQueueDepth(EventPriority priority) {
+    return queueDepths[priority.ordinal()];
+  }
+
+  /**
+   * Returns the largest number of handler invocations that have ever been waiting at once in the
+   * dispatch queue for the given event priority.
+   */
+  public int getPeakQueueDepth(EventPriority priority) {
+    return peakQueueDepths[priority.ordinal()];
+  }
+
+  /**
+   * Returns the total number of handler invocations that have been queued for the given event
+   * priority over the lifetime of the event bus.
+   */
+  public int getEnqueuedCount(EventPriority priority) {
+    return enqueuedCounts[priority.ordinal()];
+  }
+
+  /** Returns the number of handler invocations waiting in the dispatch queue for all priorities. */
+  public int getQueueLength() {
+    return queueLength;
+  }
+
+  /**
+   * Returns the largest number of handler invocations that have ever been waiting at once in the
+   * dispatch queue across all event priorities.
+   */
+  public int getPeakQueueLength() {
+    return peakQueueLength;
+  }
+
+  /**
+   * Returns the deepest cascade of events seen over the lifetime of the event bus, as measured by
+   * {@link DispatchContext#getDepth}. This includes events rejected for exceeding the limits
+   * configured via {@link EventBus#setCascadeLimits}.
+   */
+  public int getPeakCascadeDepth() {
+    return peakCascadeDepth;
+  }
+
+  /**
+   * Returns the number of times dispatch was aborted because a cascade of events exceeded the
+   * limits configured via {@link EventBus#setCascadeLimits}.
+   */
+  public int getCascadeLimitCount() {
+    return cascadeLimitCount;
+  }
+
+  /**
+   * Returns the number of handler invocations that exceeded the budget of the
+   * {@link SlowHandlerWatchdog} installed when they were invoked.
+   */
+  public int getSlowInvocationCount() {
+    return slowInvocationCount;
+  }
+
+  /**
+   * Returns the number of times a handler method has been reported by the
+   * {@link SlowHandlerWatchdog} for exceeding its budget too many times.
+   */
+  public int getSlowHandlerCount() {
+    return slowHandlerCount;
+  }
+
+  /**
+   * Returns the number of handler methods that are currently demoted out of the synchronous
+   * dispatch by the {@link SlowHandlerWatchdog}.
+   */
+  public int getDemotedHandlerCount() {
+    return demotedHandlerCount;
+  }
+
+  /**
+   * Returns the number of handler invocations that have been dispatched after the synchronous
+   * dispatch because their handlers were demoted.
+   */
+  public int getDemotedInvocationCount() {
+    return demotedInvocationCount;
+  }
+
+  /** Returns the number of handler methods currently paused via {@link EventBus#pauseHandlers}. */
+  public int getPausedHandlerCount() {
+    return pausedHandlerCount;
+  }
+
+  /**
+   * Returns the number of registered handler methods at each handler priority, as given by
+   * {@link com.ekuefler.supereventbus.priority.WithPriority}.
+   */
+  public SortedMap<Integer, Integer> getLiveHandlerCounts() {
+    return liveHandlerCounts;
+  }
+
+  /**
+   * Returns the number of placeholders left behind by unregistered handler methods at each handler
+   * priority. Placeholders use a small amount of memory and are skipped whenever the handler cache
+   * for a new event type is built, but are never removed.
+   */
+  public SortedMap<Integer, Integer> getTombstoneCounts() {
+    return tombstoneCounts;
+  }
+
+  /**
+   * Returns the number of distinct objects with registered handlers, grouped by the class of each
+   * object.
+   */
+  public Map<Class<?>, Integer> getOwnerCountsByClass() {
+    return ownerCountsByClass;
+  }
+
+  /** Returns the number of event classes for which handlers have been cached. */
+  public int getCacheEntryCount() {
+    return cacheEntryCount;
+  }
+
+  /**
+   * Returns the number of times the handler cache was consulted for an event whose class already
+   * had an entry in the cache.
+   */
+  public int getCacheHitCount() {
+    return cacheHitCount;
+  }
+
+  /**
+   * Returns the number of times the handler cache was consulted for an event whose class had no
+   * entry in the cache, either because no event of that class was seen before or because its entry
+   * was evicted.
+   */
+  public int getCacheMissCount() {
+    return cacheMissCount;
+  }
+
+  /**
+   * Returns the number of entries evicted from the handler cache because of the limit set via
+   * {@link EventBus#setHandlerCacheLimit}.
+   */
+  public int getCacheEvictionCount() {
+    return cacheEvictionCount;
+  }
+
+  /** Returns the total number of handlers across all cached event classes. */
+  public int getCachedHandlerCount() {
+    return cachedHandlerCount;
+  }
+
+  /** Returns the number of handlers cached for the event class with the most handlers. */
+  public int getLargestCacheEntrySize() {
+    return largestCacheEntrySize;
+  }
+
+  /**
+   * Returns a rough estimate of the number of bytes used by the event bus's own bookkeeping for
+   * handlers, caches, and queues. This doesn't include the handler objects or events themselves,
+   * and is only intended for spotting trends, such as memory growing because objects are never
+   * unregistered.
+   */
+  public int getEstimatedMemoryBytes() {
+    return estimatedMemoryBytes;
+  }
+
+  /**
+   * Returns the number of events that have been consumed via {@link DispatchContext#consume} over
+   * the lifetime of the event bus.
+   */
+  public int getConsumedEventCount() {
+    return consumedEventCount;
+  }
+
+  /**
+   * Returns the number of handler invocations that have been skipped because the event they were
+   * to receive had been consumed.
+   */
+  public int getSkippedHandlerCount() {
+    return skippedHandlerCount;
+  }
+
+  /**
+   * Returns the number of events posted over the lifetime of the event bus that had no handlers,
+   * regardless of the {@link DeadEventPolicy} in effect when they were posted.
+   */
+  public int getDeadEventCount() {
+    return deadEventCount;
+  }
+
+  /**
+   * Returns the number of times any handler has been suspended by the circuit breaker configured
+   * via {@link EventBus#setCircuitBreaker}.
+   */
+  public int getHandlerSuspensionCount() {
+    return handlerSuspensionCount;
+  }
+
+  /** Returns the number of handlers that are currently suspended by the circuit breaker. */
+  public int getSuspendedHandlerCount() {
+    return suspendedHandlerCount;
+  }
+
+  /**
+   * Returns the number of registered objects whose handlers were removed after the objects were
+   * garbage collected. Always zero unless objects are held weakly via
+   * {@link EventBus#setOwnerReferences}.
+   */
+  public int getCollectedOwnerCount() {
+    return collectedOwnerCount;
+  }
+
+  /**
+   * Returns the number of objects registered via {@link EventBus#registerLazily} for which some
+   * handlers haven't been created yet, since no event they handle has been posted.
+   */
+  public int getLazyRegistrationCount() {
+    return lazyRegistrationCount;
+  }
+}
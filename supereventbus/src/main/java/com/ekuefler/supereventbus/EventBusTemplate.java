@@ -0,0 +1,119 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+/**
+ * A set of registrations from which many event buses can be created cheaply. This is useful on a
+ * server, where a new event bus might be created for each request, but every bus should contain the
+ * same stateless subscribers. Instead of registering each subscriber on each bus, register them
+ * once on a template and create each bus via {@link #newBus}:
+ *
+ * <pre>
+ * EventBusTemplate template = new EventBusTemplate();
+ * template.register(userService, UserServiceRegistration.class);
+ * template.warmUp(new UserLoggedInEvent(null));
+ * ...
+ * EventBus requestBus = template.newBus();
+ * </pre>
+ *
+ * Each bus created from a template shares the template's handlers and starts with a copy of the
+ * template's handler cache, so creating one doesn't require any registration or cache population.
+ * The bus has its own queue and settings, and objects can be registered on it as usual, including
+ * through scopes. Registering the first object on a bus copies the template's handler lists, which
+ * is much cheaper than registering the template's objects again.
+ * <p>
+ * The objects registered on the template belong to the template rather than to any of its buses,
+ * so they can't be unregistered or paused via those buses. Since their handlers are shared between
+ * buses, their failures and slow invocations are still reported to each bus's exception handlers,
+ * but they are never suspended by a bus's circuit breaker or demoted by its watchdog. Handlers that
+ * defer their invocations, such as batched, throttled, or debounced handlers, can't be shared and
+ * can't be registered on a template.
+ * <p>
+ * Once a template is frozen, nothing more can be registered on it. A template that is only used
+ * from a single thread is frozen automatically when the first bus is created from it. To create
+ * buses from multiple threads, call {@link #freeze} before sharing the template with them, after
+ * which {@link #newBus} can safely be called concurrently. Each bus must still only be used from a
+ * single thread.
+ *
+ * @author ekuefler@gmail.com (Erik Kuefler)
+ */
+public class EventBusTemplate {
+
+  private final EventBus eventBus = new EventBus();
+  // Written only after freezing the bus has finished, so that threads that see the template as
+  // frozen also see the bus's final state
+  private volatile boolean frozen = false;
+
+  /**
+   * Registers all {@link Subscribe}-annotated methods in the given object on every bus that will be
+   * created from this template.
+   *
+   * @param owner object to scan for {@link Subscribe}-annotated methods to register
+   * @param registration the registration interface for the given owner
+   * @throws IllegalStateException if the template is already frozen
+   */
+  public synchronized <T> void register(T owner, EventRegistration<T> registration) {
+    checkNotFrozen();
+    eventBus.register(owner, registration);
+  }
+
+  /**
+   * Populates the template's handler cache for the class of the given event, without posting the
+   * event. Buses created from the template start with this cache, so the first event of this class
+   * posted on each bus doesn't need to check every handler.
+   *
+   * @param sampleEvent an event of the class whose handlers should be cached
+   * @throws IllegalStateException if the template is already frozen
+   */
+  public synchronized void warmUp(Object sampleEvent) {
+    if (sampleEvent == null) {
+      throw new NullPointerException();
+    }
+    checkNotFrozen();
+    eventBus.warmCache(sampleEvent);
+  }
+
+  /**
+   * Freezes this template, after which nothing more can be registered on it and buses can be
+   * created from it on any thread. Calling this on a template that is already frozen has no effect.
+   *
+   * @throws IllegalStateException if a registered handler can't be shared between buses
+   */
+  public synchronized void freeze() {
+    if (!frozen) {
+      eventBus.freeze();
+      frozen = true;
+    }
+  }
+
+  /**
+   * Creates a new event bus containing all of the handlers registered on this template, freezing
+   * the template if it hasn't been frozen yet.
+   *
+   * @return a new event bus
+   * @throws IllegalStateException if a registered handler can't be shared between buses
+   */
+  public EventBus newBus() {
+    if (!frozen) {
+      freeze();
+    }
+    return new EventBus(eventBus);
+  }
+
+  private void checkNotFrozen() {
+    if (frozen) {
+      throw new IllegalStateException("Template is already frozen");
+    }
+  }
+}
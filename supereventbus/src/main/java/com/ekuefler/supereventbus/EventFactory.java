@@ -0,0 +1,26 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+/**
+ * Creates an event on demand. Passed to {@link EventBus#post(Class, EventFactory)} so that events
+ * which are expensive to construct are only built if something is listening for them.
+ *
+ * @author ekuefler@gmail.com (Erik Kuefler)
+ * @param <T> type of event created by this factory
+ */
+public interface EventFactory<T> {
+  /** Creates the event to be posted. Must never return <code>null</code>. */
+  T create();
+}
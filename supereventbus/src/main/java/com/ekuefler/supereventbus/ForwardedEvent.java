@@ -0,0 +1,27 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+/**
+ * Marker interface for events that should always be forwarded from a child event bus to its parent
+ * after being handled by the child, regardless of the child's {@link ForwardingPolicy}. Events that
+ * are posted directly on a bus without a parent are unaffected. For example:
+ *
+ * <pre>
+ * class UserLoggedOutEvent implements ForwardedEvent {}
+ * </pre>
+ *
+ * @author ekuefler@gmail.com (Erik Kuefler)
+ */
+public interface ForwardedEvent {}
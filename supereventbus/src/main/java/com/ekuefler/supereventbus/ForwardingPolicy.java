@@ -0,0 +1,36 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+/**
+ * Determines which events posted on a child event bus created via {@link EventBus#createChild} are
+ * forwarded to its parent. Regardless of the policy, events implementing {@link ForwardedEvent} are
+ * always forwarded, and {@link DeadEvent}s are never forwarded.
+ *
+ * @author ekuefler@gmail.com (Erik Kuefler)
+ */
+public enum ForwardingPolicy {
+  /** Only events implementing {@link ForwardedEvent} are forwarded to the parent. */
+  NONE,
+
+  /**
+   * Events that have no handlers on the child are forwarded to the parent instead of being treated
+   * as dead events by the child. Handlers that are paused or suspended on the child don't count,
+   * since they won't be invoked.
+   */
+  UNHANDLED,
+
+  /** Every event is forwarded to the parent after being handled by the child. */
+  ALL
+}
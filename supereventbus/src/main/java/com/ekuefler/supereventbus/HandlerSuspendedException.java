@@ -0,0 +1,38 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+/**
+ * An exception passed to exception handlers when a handler method is suspended because it failed
+ * too many times in a row, as configured by {@link EventBus#setCircuitBreaker}. The cause of this
+ * exception is the exception thrown by the handler's last failed invocation. This exception is
+ * reported exactly once each time a handler is suspended, after the exception for that last
+ * invocation itself.
+ *
+ * @author ekuefler@gmail.com (Erik Kuefler)
+ */
+public class HandlerSuspendedException extends EventBusException {
+  private final int failureCount;
+
+  HandlerSuspendedException(
+      Exception cause, Object source, DispatchContext context, int failureCount) {
+    super(cause, source, context);
+    this.failureCount = failureCount;
+  }
+
+  /** Returns the number of consecutive failures that caused the handler to be suspended. */
+  public int getFailureCount() {
+    return failureCount;
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Process-wide record of which event classes each kind of generated handler method accepts, shared
+ * by every event bus. Handler methods are identified by the keys returned from
+ * {@link com.ekuefler.supereventbus.impl.ClassBasedEventHandlerMethod#getMatchingKey}, so a
+ * method's results can be reused for every object it is registered on, on every bus. Only the
+ * binding of matching handlers to their owners remains to be done by each bus.
+ * <p>
+ * Matches are remembered for a bounded number of event classes, discarding those of the least
+ * recently used class when the bound is exceeded. This keeps the cache from growing without limit
+ * when many short-lived event classes are posted, and from keeping more than a bounded number of
+ * classes (and, on the JVM, their class loaders) reachable.
+ *
+ * @author ekuefler@gmail.com (Erik Kuefler)
+ */
+final class MatchingCache {
+
+  // Maximum number of event classes for which matches are remembered
+  static final int MAX_EVENT_CLASSES = 1000;
+
+  // Map from event classes to a map from matching keys to whether they match the class, in access
+  // order so that the least recently used class can be discarded
+  private static final Map<Class<?>, Map<Object, Boolean>> matchesByEventClass =
+      new LinkedHashMap<Class<?>, Map<Object, Boolean>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Entry<Class<?>, Map<Object, Boolean>> eldest) {
+          return size() > MAX_EVENT_CLASSES;
+        }
+      };
+
+  private MatchingCache() {}
+
+  /**
+   * Returns whether methods with the given matching key accept events of the given class, or null
+   * if this isn't known.
+   */
+  static synchronized Boolean getMatch(Class<?> eventClass, Object matchingKey) {
+    Map<Object, Boolean> matches = matchesByEventClass.get(eventClass);
+    return matches != null ? matches.get(matchingKey) : null;
+  }
+
+  /** Records the given matches for the given event class, merging them into any known matches. */
+  static synchronized void addMatches(Class<?> eventClass, Map<Object, Boolean> newMatches) {
+    Map<Object, Boolean> matches = matchesByEventClass.get(eventClass);
+    if (matches == null) {
+      matchesByEventClass.put(eventClass, newMatches);
+    } else {
+      matches.putAll(newMatches);
+    }
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+/**
+ * A group of objects of the same class whose handlers are registered on an event bus together.
+ * Groups are created via {@link EventBus#createOwnerGroup} and are useful when many instances of
+ * one class are registered at once, such as the rows of a large table:
+ *
+ * <pre>
+ * OwnerGroup&lt;Row&gt; rows = eventBus.createOwnerGroup(
+ *     (RowRegistration) GWT.create(RowRegistration.class));
+ * for (Row row : table.getRows()) {
+ *   rows.add(row);
+ * }
+ * </pre>
+ *
+ * Instead of creating a handler for each method of each object, the event bus creates a single
+ * handler for each method and keeps the objects in an array. Adding an object to a group costs
+ * only one slot in that array, and an event is delivered to the whole group by invoking the method
+ * on each object in a tight loop. Objects in the group receive each event in the order they were
+ * added, at the position the group's handlers occupy among the other handlers of the same
+ * priority.
+ * <p>
+ * In exchange, objects in a group share their handlers. Individual objects can't be paused, though
+ * the whole group can be paused via {@link EventBus#pauseHandlers}. The circuit breaker and the
+ * {@link SlowHandlerWatchdog} still treat each object on its own, suspending an object that keeps
+ * failing or demoting one that keeps running slowly without affecting the rest of the group. This
+ * state is only kept for objects that have failed or run slowly, and is discarded when an object is
+ * removed from the group. Calling {@link EventBus#resumeHandlers} with the group resumes all of
+ * its objects. Groups can't contain batched, throttled, or debounced handlers, whose state is kept
+ * per object. Objects are held strongly by their group even if the event bus holds registered
+ * objects through {@link OwnerReferences}.
+ *
+ * @param <T> the class of objects in this group
+ * @author ekuefler@gmail.com (Erik Kuefler)
+ */
+public class OwnerGroup<T> {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final EventBus eventBus;
+
+  // Objects in this group in the order they were added, with null in the slots of objects that
+  // were removed, followed by unused capacity. Maintained by the event bus.
+  Object[] owners = new Object[INITIAL_CAPACITY];
+
+  // Number of slots in use, including those of removed objects, and the number of removed objects
+  int slotCount = 0;
+  int removedCount = 0;
+
+  // Whether an event is being delivered to this group, during which slots must not move
+  boolean dispatching = false;
+
+  // Whether this group has been closed
+  boolean closed = false;
+
+  OwnerGroup(EventBus eventBus) {
+    this.eventBus = eventBus;
+  }
+
+  /**
+   * Adds the given object to this group, so that it receives all subsequently posted events handled
+   * by the group. Adding an object more than once causes it to receive each event more than once.
+   *
+   * @param owner object to add
+   * @throws IllegalStateException if this group has been closed
+   */
+  public void add(T owner) {
+    eventBus.addToGroup(this, owner);
+  }
+
+  /**
+   * Removes the given object from this group, so that it receives no further events. This takes
+   * time proportional to the number of objects in the group, so groups are best suited for objects
+   * that are added and removed together.
+   *
+   * @param owner object to remove
+   * @throws IllegalArgumentException if the object is not in this group
+   */
+  public void remove(T owner) {
+    eventBus.removeFromGroup(this, owner);
+  }
+
+  /** Returns the number of objects in this group. */
+  public int size() {
+    return slotCount - removedCount;
+  }
+
+  /**
+   * Unregisters this group's handlers and removes all objects from it. Closing a group more than
+   * once has no effect.
+   */
+  public void close() {
+    eventBus.closeGroup(this);
+  }
+
+  /** Returns whether this group has been closed. */
+  public boolean isClosed() {
+    return closed;
+  }
+}
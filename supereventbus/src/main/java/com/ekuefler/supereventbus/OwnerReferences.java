@@ -0,0 +1,49 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+/**
+ * Controls how an event bus holds on to the objects registered on it. By default, an event bus
+ * holds registered objects strongly, so an object that is never unregistered can never be garbage
+ * collected. On platforms with weak references, such as a server-side JVM, an implementation of
+ * this interface can be installed via {@link EventBus#setOwnerReferences} so that registered
+ * objects are held weakly instead. See
+ * {@link com.ekuefler.supereventbus.jvm.WeakOwnerReferences}.
+ *
+ * @author ekuefler@gmail.com (Erik Kuefler)
+ */
+public interface OwnerReferences {
+
+  /** A reference to a registered object. */
+  interface Reference {
+    /** Returns the referenced object, or null if it has been garbage collected. */
+    Object get();
+  }
+
+  /**
+   * Creates a reference to the given object. The event bus creates one reference for each
+   * registered object, and holds the object only through that reference.
+   *
+   * @param owner object being registered
+   * @return a reference to the object
+   */
+  Reference create(Object owner);
+
+  /**
+   * Returns a reference created by this object whose referent has been garbage collected, or null
+   * if there are no such references. Each cleared reference should be returned only once. This is
+   * called each time an event is posted, so it should be cheap when there is nothing to return.
+   */
+  Reference poll();
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+import com.google.gwt.core.shared.GWT;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Helps find objects that are registered on an event bus but never unregistered. Since the event
+ * bus holds a reference to every registered object, such objects can never be garbage collected. A
+ * common example is a widget that registers itself in its constructor but is never unregistered
+ * when it is removed from the page. Installed via {@link EventBus#setLeakDetector}.
+ * <p>
+ * The detector records where each object was registered and counts the registered objects of each
+ * class. When the number of registered objects of one class reaches the threshold given to the
+ * constructor, and again each time that number doubles, a warning is issued along with the
+ * registration site of the most recently registered object. Optionally, a {@link DetachedCheck}
+ * can be supplied to identify objects that are obviously no longer in use, in which case a warning
+ * is issued the first time a handler on such an object is invoked.
+ * <p>
+ * Recording registration sites captures a stack trace for every registration, so the detector is
+ * mostly useful during development and testing. By default, warnings are logged via
+ * {@link GWT#log}. Subclasses can override {@link #warn} to report them elsewhere.
+ *
+ * @author ekuefler@gmail.com (Erik Kuefler)
+ */
+public class RegistrationLeakDetector {
+
+  /** Decides whether a registered object is no longer in use and should have been unregistered. */
+  public interface DetachedCheck {
+    /**
+     * Returns whether the given registered object is no longer in use, for example because it is a
+     * widget that is no longer attached to the page.
+     */
+    boolean isDetached(Object owner);
+  }
+
+  /** Information recorded for each registered object. */
+  private static class Registration {
+    final Exception site;
+    boolean reportedDetached;
+
+    Registration(Exception site) {
+      this.site = site;
+    }
+  }
+
+  private final int ownerThreshold;
+  private DetachedCheck detachedCheck;
+
+  // Registration information for each registered object
+  private final Map<Object, Registration> registrations =
+      new IdentityHashMap<Object, Registration>();
+
+  // For each owner class, the number of registered objects and the count at which to warn next
+  private final Map<Class<?>, int[]> countsByClass = new HashMap<Class<?>, int[]>();
+
+  /**
+   * Creates a detector that warns when the given number of objects of one class are registered.
+   *
+   * @param ownerThreshold number of registered objects of a single class at which to warn
+   */
+  public RegistrationLeakDetector(int ownerThreshold) {
+    if (ownerThreshold <= 0) {
+      throw new IllegalArgumentException("Threshold must be positive");
+    }
+    this.ownerThreshold = ownerThreshold;
+  }
+
+  /**
+   * Sets a check to run on the owner of each handler before the handler is invoked, or
+   * <code>null</code> to stop checking. The check is invoked for every handler invocation, so it
+   * should be cheap.
+   */
+  public void setDetachedCheck(DetachedCheck detachedCheck) {
+    this.detachedCheck = detachedCheck;
+  }
+
+  /** Returns the number of objects of the given class that are currently registered. */
+  public int getRegisteredOwnerCount(Class<?> ownerClass) {
+    int[] counts = countsByClass.get(ownerClass);
+    return counts != null ? counts[0] : 0;
+  }
+
+  /**
+   * Returns an exception whose stack trace shows where the given object was registered, or
+   * <code>null</code> if the object isn't registered or was registered before this detector was
+   * installed.
+   */
+  public Exception getRegistrationSite(Object owner) {
+    Registration registration = registrations.get(owner);
+    return registration != null ? registration.site : null;
+  }
+
+  /**
+   * Issues a warning about a possible leak.
+   *
+   * @param message description of the possible leak
+   * @param registrationSite exception whose stack trace shows where the object involved was
+   *          registered
+   */
+  protected void warn(String message, Exception registrationSite) {
+    GWT.log(message, registrationSite);
+  }
+
+  void onRegister(Object owner) {
+    if (registrations.containsKey(owner)) {
+      return;
+    }
+    Exception site = new Exception("Registration of " + owner.getClass().getName());
+    registrations.put(owner, new Registration(site));
+
+    int[] counts = countsByClass.get(owner.getClass());
+    if (counts == null) {
+      counts = new int[] {0, ownerThreshold};
+      countsByClass.put(owner.getClass(), counts);
+    }
+    if (++counts[0] >= counts[1]) {
+      counts[1] *= 2;
+      warn(counts[0] + " objects of class " + owner.getClass().getName() + " are registered on "
+          + "the event bus. They may not be getting unregistered.", site);
+    }
+  }
+
+  void onUnregister(Object owner) {
+    if (registrations.remove(owner) != null) {
+      countsByClass.get(owner.getClass())[0]--;
+    }
+  }
+
+  void onDispatch(Object owner) {
+    if (detachedCheck == null) {
+      return;
+    }
+    Registration registration = registrations.get(owner);
+    if (registration != null && !registration.reportedDetached
+        && detachedCheck.isDetached(owner)) {
+      registration.reportedDetached = true;
+      warn("A handler was invoked on a detached object of class " + owner.getClass().getName()
+          + ". It should have been unregistered from the event bus.", registration.site);
+    }
+  }
+}
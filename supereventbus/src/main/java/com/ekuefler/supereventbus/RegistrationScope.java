@@ -0,0 +1,68 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+/**
+ * A group of registrations on an event bus that can be removed all at once. Scopes are created via
+ * {@link EventBus#openScope} and are useful for objects whose lifetimes are tied together, such as
+ * all of the objects registered by a single screen:
+ *
+ * <pre>
+ * RegistrationScope scope = eventBus.openScope();
+ * scope.register(presenter, PresenterRegistration.class);
+ * scope.register(view, ViewRegistration.class);
+ * ...
+ * scope.close();
+ * </pre>
+ *
+ * Closing a scope unregisters every handler registered through it. This is much cheaper than
+ * calling {@link EventBus#unregister} for each object, since the work done is proportional to the
+ * number of handlers in the scope rather than to the number of handlers on the whole event bus.
+ *
+ * @author ekuefler@gmail.com (Erik Kuefler)
+ */
+public class RegistrationScope {
+
+  private final EventBus eventBus;
+
+  RegistrationScope(EventBus eventBus) {
+    this.eventBus = eventBus;
+  }
+
+  /**
+   * Registers all {@link Subscribe}-annotated methods in the given object on this scope's event
+   * bus, exactly as if they were registered via {@link EventBus#register}. The object's handlers
+   * are unregistered when this scope is closed, or when the object is unregistered directly.
+   *
+   * @param owner object to scan for {@link Subscribe}-annotated methods to register
+   * @param registration the registration interface for the given owner
+   * @throws IllegalStateException if this scope has already been closed
+   */
+  public <T> void register(T owner, EventRegistration<T> registration) {
+    eventBus.register(owner, registration, this);
+  }
+
+  /**
+   * Unregisters all handlers registered through this scope that haven't already been unregistered.
+   * Closing a scope more than once has no effect.
+   */
+  public void close() {
+    eventBus.closeScope(this);
+  }
+
+  /** Returns whether this scope has been closed. */
+  public boolean isClosed() {
+    return !eventBus.isScopeOpen(this);
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+/**
+ * An exception passed to exception handlers when a handler method exceeds the budget of the
+ * {@link SlowHandlerWatchdog} installed on the event bus too many times. This exception is reported
+ * once for each handler method, after the invocation that reached the limit. It has no cause, since
+ * the handler didn't fail. Its event is the event that was being handled by that invocation.
+ *
+ * @author ekuefler@gmail.com (Erik Kuefler)
+ */
+public class SlowHandlerException extends EventBusException {
+  private final String handlerName;
+  private final long elapsedMillis;
+  private final int budgetMillis;
+  private final int slowInvocationCount;
+  private final boolean demoted;
+
+  SlowHandlerException(Object source, DispatchContext context, String handlerName,
+      long elapsedMillis, int budgetMillis, int slowInvocationCount, boolean demoted) {
+    super(null, source, context);
+    this.handlerName = handlerName;
+    this.elapsedMillis = elapsedMillis;
+    this.budgetMillis = budgetMillis;
+    this.slowInvocationCount = slowInvocationCount;
+    this.demoted = demoted;
+  }
+
+  @Override
+  public String getMessage() {
+    return getSource().getClass().getName() + "." + handlerName + " exceeded its budget of "
+        + budgetMillis + "ms " + slowInvocationCount + " times, most recently taking "
+        + elapsedMillis + "ms" + (demoted ? ", and was demoted" : "");
+  }
+
+  /**
+   * Returns the human-readable name of the slow handler method, consisting of the method's name and
+   * the type of event it handles.
+   */
+  public String getHandlerName() {
+    return handlerName;
+  }
+
+  /** Returns the number of milliseconds taken by the invocation that reached the limit. */
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  /** Returns the budget in milliseconds that the handler exceeded. */
+  public int getBudgetMillis() {
+    return budgetMillis;
+  }
+
+  /** Returns the number of invocations of the handler method that exceeded the budget. */
+  public int getSlowInvocationCount() {
+    return slowInvocationCount;
+  }
+
+  /** Returns whether the handler method was moved out of the synchronous dispatch. */
+  public boolean isDemoted() {
+    return demoted;
+  }
+}
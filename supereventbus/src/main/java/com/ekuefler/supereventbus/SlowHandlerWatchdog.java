@@ -0,0 +1,62 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+/**
+ * Times each handler invocation against a budget, reporting handler methods that exceed it too
+ * often. Installed via {@link EventBus#setSlowHandlerWatchdog}. When a handler method has exceeded
+ * the budget the given number of times, a {@link SlowHandlerException} is passed to the event bus's
+ * exception handlers.
+ * <p>
+ * If demotion is enabled, reported handler methods are also demoted: instead of being invoked as
+ * part of the synchronous dispatch of each event, they are invoked shortly afterwards using the
+ * event bus's {@link TaskScheduler}, so that they stop delaying other handlers. Demoted handlers
+ * still receive every event in order, but may observe events after later events have already been
+ * handled by other handlers. Demoted handlers can be restored via {@link EventBus#resumeHandlers}.
+ *
+ * @author ekuefler@gmail.com (Erik Kuefler)
+ */
+public class SlowHandlerWatchdog {
+
+  final int budgetMillis;
+  final int strikeLimit;
+  boolean demotionEnabled = false;
+
+  /**
+   * Creates a watchdog with the given budget.
+   *
+   * @param budgetMillis number of milliseconds a single handler invocation may take
+   * @param strikeLimit number of times a handler method may exceed the budget before it is reported
+   */
+  public SlowHandlerWatchdog(int budgetMillis, int strikeLimit) {
+    if (budgetMillis <= 0 || strikeLimit <= 0) {
+      throw new IllegalArgumentException("Budget and strike limit must be positive");
+    }
+    this.budgetMillis = budgetMillis;
+    this.strikeLimit = strikeLimit;
+  }
+
+  /**
+   * Sets whether reported handler methods should be moved out of the synchronous dispatch. Disabled
+   * by default.
+   */
+  public void setDemotionEnabled(boolean demotionEnabled) {
+    this.demotionEnabled = demotionEnabled;
+  }
+
+  /** Returns the current time in milliseconds. Can be overridden to supply a different clock. */
+  protected long now() {
+    return System.currentTimeMillis();
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+/**
+ * Schedules work to be run at some point in the future. The event bus uses a scheduler to implement
+ * handlers whose invocations are deferred, such as handlers receiving batches of events via
+ * {@link com.ekuefler.supereventbus.batching.BatchWindow} or handlers annotated with
+ * {@link com.ekuefler.supereventbus.timing.Throttle} or
+ * {@link com.ekuefler.supereventbus.timing.Debounce}. By default, the event bus schedules work
+ * using GWT's {@link com.google.gwt.user.client.Timer}, but a different scheduler can be installed
+ * via {@link EventBus#setTaskScheduler} - for example, to run on a server or to control time
+ * deterministically in tests.
+ *
+ * @author ekuefler@gmail.com (Erik Kuefler)
+ */
+public interface TaskScheduler {
+
+  /** A handle to a scheduled command that can be used to cancel it. */
+  interface Task {
+    /** Cancels the command if it has not already run. Has no effect otherwise. */
+    void cancel();
+  }
+
+  /**
+   * Schedules the given command to run once after the given delay.
+   *
+   * @param delayMillis minimum number of milliseconds to wait before running the command
+   * @param command command to run
+   * @return a handle that can be used to cancel the command
+   */
+  Task schedule(int delayMillis, Runnable command);
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus.batching;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Target;
+
+/**
+ * An annotation that, when applied to a {@link java.util.List} parameter of a method annotated
+ * with {@link com.ekuefler.supereventbus.Subscribe}, causes that method to receive events in
+ * batches instead of one at a time. For example, the following method would be invoked with up to
+ * 50 events at a time, no later than 100 milliseconds after the first event in each batch was
+ * posted:
+ *
+ * <pre>
+ * &#064;Subscribe
+ * void onRowsChanged(
+ *     &#064;BatchWindow(count = 50, millis = 100) List&lt;RowChangedEvent&gt; events) {
+ *   grid.refresh(events);
+ * }
+ * </pre>
+ *
+ * Events are collected separately for each registered object in the order in which they were
+ * posted. When a batch reaches the given count, it is delivered immediately, as part of the
+ * dispatch of the event that filled it. When the given time window closes, the batch is delivered
+ * via the event bus's {@link com.ekuefler.supereventbus.TaskScheduler}. At least one of the two
+ * limits must be specified. Note that if only a count is given, events will wait indefinitely until
+ * enough of them have been posted to fill a batch. Pending events are discarded when the owning
+ * object is unregistered.
+ * <p>
+ * Priorities apply as usual. Filters specified with
+ * {@link com.ekuefler.supereventbus.filtering.When} are evaluated once for each batch at delivery
+ * time, with the list of events passed as the event. Without this annotation, a handler for a
+ * {@link java.util.List} parameter is an ordinary handler that listens for lists posted on the
+ * event bus.
+ *
+ * @author ekuefler@gmail.com (Erik Kuefler)
+ */
+@Documented
+@Inherited
+@Target(value = ElementType.PARAMETER)
+public @interface BatchWindow {
+  /**
+   * The maximum number of events in a batch. When this many events have been collected, they are
+   * delivered immediately. Zero (the default) means that batches are limited only by time.
+   */
+  int count() default 0;
+
+  /**
+   * The number of milliseconds to wait after the first event of a batch is received before
+   * delivering the batch. Zero (the default) means that batches are limited only by size.
+   */
+  int millis() default 0;
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus.impl;
+
+import com.ekuefler.supereventbus.TaskScheduler;
+import com.ekuefler.supereventbus.monitoring.DispatchOutcome;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A handler method that buffers the events it receives and passes them to an underlying method in
+ * batches, as configured by {@link com.ekuefler.supereventbus.batching.BatchWindow}. Users should
+ * not reference this class - it is used internally and is subject to change.
+ *
+ * @author ekuefler@gmail.com (Erik Kuefler)
+ *
+ * @param <I> type of the instance in which the handler method is defined
+ * @param <A> type of the events collected into each batch
+ */
+public class BatchingEventHandlerMethod<I, A> extends ScheduledEventHandlerMethod<I, A> {
+
+  private final int maxCount;
+  private final int windowMillis;
+  private final EventHandlerMethod<I, List<A>> delegate;
+
+  // Events received since the last batch was delivered
+  private List<A> pending = new ArrayList<A>();
+
+  // Task that will deliver the pending events when the time window closes, if one is scheduled
+  private TaskScheduler.Task flushTask;
+
+  /**
+   * Creates a method that delivers batches to the given delegate.
+   *
+   * @param maxCount number of events after which a batch is delivered immediately, or zero if
+   *          batches should not be limited by size
+   * @param windowMillis number of milliseconds after the first event in a batch is received after
+   *          which the batch is delivered, or zero if batches should not be limited by time
+   * @param delegate method to be invoked with each batch
+   */
+  public BatchingEventHandlerMethod(
+      int maxCount, int windowMillis, EventHandlerMethod<I, List<A>> delegate) {
+    this.maxCount = maxCount;
+    this.windowMillis = windowMillis;
+    this.delegate = delegate;
+  }
+
+  @Override
+  public DispatchOutcome handle(I instance, A arg) {
+    pending.add(arg);
+    if (maxCount > 0 && pending.size() >= maxCount) {
+      // The batch is full, so deliver it right away as part of the current dispatch
+      cancelFlushTask();
+      return delegate.invoke(instance, takePending())
+          ? DispatchOutcome.INVOKED
+          : DispatchOutcome.REJECTED;
+    } else if (windowMillis > 0 && flushTask == null && getDispatcher() != null) {
+      // This is the first event in a new window, so arrange for the batch to be delivered later
+      flushTask = getDispatcher().schedule(windowMillis, new Runnable() {
+        @Override
+        public void run() {
+          flushTask = null;
+          if (!pending.isEmpty() && getDispatcher() != null) {
+            getDispatcher().dispatch(takePending());
+          }
+        }
+      });
+    }
+    // The event is waiting in the batch, so the delegate hasn't seen it yet
+    return DispatchOutcome.DEFERRED;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public boolean deliver(I instance, Object payload) {
+    return delegate.invoke(instance, (List<A>) payload);
+  }
+
+  @Override
+  public boolean acceptsArgument(Object arg) {
+    return delegate.acceptsArgument(arg);
+  }
+
+  @Override
+  public int getDispatchOrder() {
+    return delegate.getDispatchOrder();
+  }
+
+  @Override
+  public String getName() {
+    return delegate.getName();
+  }
+
+  @Override
+  public Object getMatchingKey() {
+    return getMatchingKey(delegate);
+  }
+
+  @Override
+  public Class<?> getEventType() {
+    return getEventType(delegate);
+  }
+
+  @Override
+  public Class<?>[] getEventTypeHierarchy() {
+    return getEventTypeHierarchy(delegate);
+  }
+
+  @Override
+  protected void cancelPendingWork() {
+    cancelFlushTask();
+    pending.clear();
+  }
+
+  private void cancelFlushTask() {
+    if (flushTask != null) {
+      flushTask.cancel();
+      flushTask = null;
+    }
+  }
+
+  // Returns the pending events as a batch, starting a new empty batch
+  private List<A> takePending() {
+    List<A> batch = pending;
+    pending = new ArrayList<A>();
+    return batch;
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus.impl;
+
+/**
+ * A handler method whose {@link #acceptsArgument} depends only on the class of its argument, which
+ * allows the results to be shared by every event bus in the process. Generated handler methods
+ * implement this interface. Users should not implement or reference this interface - it is used
+ * internally and is subject to change.
+ *
+ * @author ekuefler@gmail.com (Erik Kuefler)
+ *
+ * @param <I> type of the instance in which the handler method is defined
+ * @param <A> type of the argument to the handler method
+ */
+public interface ClassBasedEventHandlerMethod<I, A> extends EventHandlerMethod<I, A> {
+  /**
+   * Returns a key identifying the event classes this method accepts. All methods returning equal
+   * keys must accept exactly the same event classes. May return null if the method's results can't
+   * be shared after all, such as when it wraps a method that doesn't implement this interface.
+   */
+  Object getMatchingKey();
+
+  /**
+   * Returns the class of events this method accepts, which are instances of the returned class or
+   * its subclasses, or null if this isn't known.
+   */
+  Class<?> getEventType();
+
+  /**
+   * Returns the class returned by {@link #getEventType} followed by all of its superclasses and
+   * interfaces, allowing the handlers for events of exactly that class to be determined before any
+   * such event is posted. Returns null if the event type isn't a concrete class or if its hierarchy
+   * isn't known.
+   */
+  Class<?>[] getEventTypeHierarchy();
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus.impl;
+
+import com.ekuefler.supereventbus.TaskScheduler;
+import com.ekuefler.supereventbus.monitoring.DispatchOutcome;
+
+/**
+ * A handler method that waits for events to stop arriving before invoking an underlying method, as
+ * configured by {@link com.ekuefler.supereventbus.timing.Debounce}. Users should not reference this
+ * class - it is used internally and is subject to change.
+ *
+ * @author ekuefler@gmail.com (Erik Kuefler)
+ *
+ * @param <I> type of the instance in which the handler method is defined
+ * @param <A> type of the argument to the handler method
+ */
+public class DebouncedEventHandlerMethod<I, A> extends ScheduledEventHandlerMethod<I, A> {
+
+  private final int quietMillis;
+  private final EventHandlerMethod<I, A> delegate;
+
+  // Task that will deliver the most recent event, or null if no event is waiting
+  private TaskScheduler.Task deliveryTask;
+
+  /**
+   * Creates a method that invokes the given delegate once events stop arriving.
+   *
+   * @param quietMillis number of milliseconds without events to wait before invoking the delegate
+   * @param delegate method to be invoked
+   */
+  public DebouncedEventHandlerMethod(int quietMillis, EventHandlerMethod<I, A> delegate) {
+    this.quietMillis = quietMillis;
+    this.delegate = delegate;
+  }
+
+  @Override
+  public DispatchOutcome handle(I instance, final A arg) {
+    // The delegate is never invoked here, only later when the delivery task runs
+    if (getDispatcher() == null) {
+      return DispatchOutcome.DEFERRED;
+    }
+
+    // Each new event replaces the previous one and restarts the wait
+    cancelPendingWork();
+    deliveryTask = getDispatcher().schedule(quietMillis, new Runnable() {
+      @Override
+      public void run() {
+        deliveryTask = null;
+        if (getDispatcher() != null) {
+          getDispatcher().dispatch(arg);
+        }
+      }
+    });
+    return DispatchOutcome.DEFERRED;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public boolean deliver(I instance, Object payload) {
+    return delegate.invoke(instance, (A) payload);
+  }
+
+  @Override
+  public boolean acceptsArgument(Object arg) {
+    return delegate.acceptsArgument(arg);
+  }
+
+  @Override
+  public int getDispatchOrder() {
+    return delegate.getDispatchOrder();
+  }
+
+  @Override
+  public String getName() {
+    return delegate.getName();
+  }
+
+  @Override
+  public Object getMatchingKey() {
+    return getMatchingKey(delegate);
+  }
+
+  @Override
+  public Class<?> getEventType() {
+    return getEventType(delegate);
+  }
+
+  @Override
+  public Class<?>[] getEventTypeHierarchy() {
+    return getEventTypeHierarchy(delegate);
+  }
+
+  @Override
+  protected void cancelPendingWork() {
+    if (deliveryTask != null) {
+      deliveryTask.cancel();
+      deliveryTask = null;
+    }
+  }
+}
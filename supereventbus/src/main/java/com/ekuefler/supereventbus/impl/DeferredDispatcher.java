@@ -0,0 +1,37 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus.impl;
+
+import com.ekuefler.supereventbus.TaskScheduler;
+
+/**
+ * Connects a {@link ScheduledEventHandlerMethod} to the event bus on which it is registered,
+ * allowing it to run deferred invocations. Users should not implement or reference this interface -
+ * it is used internally and is subject to change.
+ *
+ * @author ekuefler@gmail.com (Erik Kuefler)
+ */
+public interface DeferredDispatcher {
+  /**
+   * Schedules the given command using the event bus's {@link TaskScheduler}.
+   */
+  TaskScheduler.Task schedule(int delayMillis, Runnable command);
+
+  /**
+   * Causes {@link ScheduledEventHandlerMethod#deliver} to be invoked with the given payload as part
+   * of the event bus's normal dispatch, so that ordering and exception handling behave just as they
+   * do for ordinary events. Deliveries are dropped if the handler is unregistered before they run.
+   */
+  void dispatch(Object payload);
+}
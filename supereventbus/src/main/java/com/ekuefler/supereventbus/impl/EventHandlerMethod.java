@@ -30,8 +30,10 @@ public interface EventHandlerMethod<I, A> {
    *
    * @param instance instance on which the method should be called
    * @param arg argument to pass to the instance
+   * @return <code>false</code> if the argument was rejected by the method's filters, or
+   *         <code>true</code> otherwise
    */
-  void invoke(I instance, A arg);
+  boolean invoke(I instance, A arg);
 
   /**
    * Returns whether or not the method accepts the given argument by checking its type. This does
@@ -47,4 +49,10 @@ public interface EventHandlerMethod<I, A> {
    * Lower-valued methods should be invoked before higher-valued methods.
    */
   int getDispatchOrder();
+
+  /**
+   * Returns a human-readable name for this method, consisting of the method's name and the type of
+   * argument it handles.
+   */
+  String getName();
 }
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus.impl;
+
+import com.ekuefler.supereventbus.monitoring.DispatchOutcome;
+
+/**
+ * Base class for handler methods that do not always invoke the underlying method immediately when
+ * an event is dispatched, but may instead defer the invocation until later. The event bus attaches
+ * a {@link DeferredDispatcher} to each instance when it is registered and detaches it when it is
+ * unregistered. Since generated registrations create new handler methods each time they are
+ * registered, any state kept by subclasses is specific to a single owner. Users should not extend
+ * or reference this class - it is used internally and is subject to change.
+ *
+ * @author ekuefler@gmail.com (Erik Kuefler)
+ *
+ * @param <I> type of the instance in which the handler method is defined
+ * @param <A> type of the argument to the handler method
+ */
+public abstract class ScheduledEventHandlerMethod<I, A>
+    implements ClassBasedEventHandlerMethod<I, A> {
+
+  private DeferredDispatcher dispatcher;
+
+  /** Called by the event bus when this method is registered. */
+  public void attach(DeferredDispatcher dispatcher) {
+    this.dispatcher = dispatcher;
+  }
+
+  /**
+   * Called by the event bus when this method is unregistered. Cancels any pending work, so that the
+   * underlying method will never be invoked again.
+   */
+  public void detach() {
+    cancelPendingWork();
+    dispatcher = null;
+  }
+
+  /**
+   * Handles an event dispatched to this method, either invoking the underlying method right away or
+   * deferring the invocation until later. The event bus calls this instead of {@link #invoke} so
+   * that deferred events can be reported separately from events rejected by filters.
+   *
+   * @return {@link DispatchOutcome#DEFERRED} if the underlying method wasn't invoked yet, or the
+   *         outcome of invoking it otherwise
+   */
+  public abstract DispatchOutcome handle(I instance, A arg);
+
+  /**
+   * Handles the event via {@link #handle}, returning <code>false</code> only if it was rejected by
+   * the underlying method's filters. A deferred event hasn't been rejected.
+   */
+  @Override
+  public final boolean invoke(I instance, A arg) {
+    return handle(instance, arg) != DispatchOutcome.REJECTED;
+  }
+
+  /**
+   * Invokes the underlying method with a payload previously passed to
+   * {@link DeferredDispatcher#dispatch}.
+   *
+   * @return <code>false</code> if the payload was rejected by the method's filters, or
+   *         <code>true</code> otherwise
+   */
+  public abstract boolean deliver(I instance, Object payload);
+
+  /** Cancels any scheduled work and discards any state waiting to be delivered. */
+  protected abstract void cancelPendingWork();
+
+  /** Returns the matching key of the given delegate, or null if it doesn't have one. */
+  protected static Object getMatchingKey(EventHandlerMethod<?, ?> delegate) {
+    return delegate instanceof ClassBasedEventHandlerMethod
+        ? ((ClassBasedEventHandlerMethod<?, ?>) delegate).getMatchingKey()
+        : null;
+  }
+
+  /** Returns the event type of the given delegate, or null if it doesn't have one. */
+  protected static Class<?> getEventType(EventHandlerMethod<?, ?> delegate) {
+    return delegate instanceof ClassBasedEventHandlerMethod
+        ? ((ClassBasedEventHandlerMethod<?, ?>) delegate).getEventType()
+        : null;
+  }
+
+  /** Returns the event type hierarchy of the given delegate, or null if it doesn't have one. */
+  protected static Class<?>[] getEventTypeHierarchy(EventHandlerMethod<?, ?> delegate) {
+    return delegate instanceof ClassBasedEventHandlerMethod
+        ? ((ClassBasedEventHandlerMethod<?, ?>) delegate).getEventTypeHierarchy()
+        : null;
+  }
+
+  /**
+   * Returns the dispatcher for the bus on which this method is registered, or <code>null</code> if
+   * it is not currently registered.
+   */
+  protected DeferredDispatcher getDispatcher() {
+    return dispatcher;
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus.impl;
+
+import com.ekuefler.supereventbus.TaskScheduler;
+import com.ekuefler.supereventbus.monitoring.DispatchOutcome;
+
+/**
+ * A handler method that limits how often an underlying method is invoked, as configured by
+ * {@link com.ekuefler.supereventbus.timing.Throttle}. Users should not reference this class - it is
+ * used internally and is subject to change.
+ *
+ * @author ekuefler@gmail.com (Erik Kuefler)
+ *
+ * @param <I> type of the instance in which the handler method is defined
+ * @param <A> type of the argument to the handler method
+ */
+public class ThrottledEventHandlerMethod<I, A> extends ScheduledEventHandlerMethod<I, A> {
+
+  private final int intervalMillis;
+  private final EventHandlerMethod<I, A> delegate;
+
+  // Task that will end the current interval, or null if no interval is in progress
+  private TaskScheduler.Task intervalTask;
+
+  // Most recent event received during the current interval, if any
+  private A pending;
+  private boolean hasPending;
+
+  /**
+   * Creates a method that invokes the given delegate at most once per interval.
+   *
+   * @param intervalMillis minimum number of milliseconds between invocations
+   * @param delegate method to be invoked
+   */
+  public ThrottledEventHandlerMethod(int intervalMillis, EventHandlerMethod<I, A> delegate) {
+    this.intervalMillis = intervalMillis;
+    this.delegate = delegate;
+  }
+
+  @Override
+  public DispatchOutcome handle(I instance, A arg) {
+    if (intervalTask != null) {
+      // Remember the event and handle it when the current interval ends
+      pending = arg;
+      hasPending = true;
+      return DispatchOutcome.DEFERRED;
+    } else {
+      startInterval();
+      return delegate.invoke(instance, arg) ? DispatchOutcome.INVOKED : DispatchOutcome.REJECTED;
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public boolean deliver(I instance, Object payload) {
+    return delegate.invoke(instance, (A) payload);
+  }
+
+  @Override
+  public boolean acceptsArgument(Object arg) {
+    return delegate.acceptsArgument(arg);
+  }
+
+  @Override
+  public int getDispatchOrder() {
+    return delegate.getDispatchOrder();
+  }
+
+  @Override
+  public String getName() {
+    return delegate.getName();
+  }
+
+  @Override
+  public Object getMatchingKey() {
+    return getMatchingKey(delegate);
+  }
+
+  @Override
+  public Class<?> getEventType() {
+    return getEventType(delegate);
+  }
+
+  @Override
+  public Class<?>[] getEventTypeHierarchy() {
+    return getEventTypeHierarchy(delegate);
+  }
+
+  @Override
+  protected void cancelPendingWork() {
+    if (intervalTask != null) {
+      intervalTask.cancel();
+      intervalTask = null;
+    }
+    pending = null;
+    hasPending = false;
+  }
+
+  private void startInterval() {
+    if (getDispatcher() == null) {
+      return;
+    }
+    intervalTask = getDispatcher().schedule(intervalMillis, new Runnable() {
+      @Override
+      public void run() {
+        intervalTask = null;
+        if (hasPending && getDispatcher() != null) {
+          // Handling the coalesced event starts another interval
+          A event = pending;
+          pending = null;
+          hasPending = false;
+          startInterval();
+          getDispatcher().dispatch(event);
+        }
+      }
+    });
+  }
+}
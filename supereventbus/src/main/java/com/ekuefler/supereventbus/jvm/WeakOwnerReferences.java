@@ -0,0 +1,60 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus.jvm;
+
+import com.ekuefler.supereventbus.OwnerReferences;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+/**
+ * Holds objects registered on an event bus through {@link WeakReference}s, so that objects that are
+ * never unregistered can still be garbage collected. Once an object has been collected, its
+ * handlers are removed from the event bus the next time an event is posted. To use it, install it
+ * before registering anything:
+ *
+ * <pre>
+ * eventBus.setOwnerReferences(new WeakOwnerReferences());
+ * </pre>
+ *
+ * This class relies on {@link java.lang.ref}, which GWT does not support, so it is only available
+ * on the JVM.
+ * <p>
+ * Weakly-held objects must be referenced from somewhere else for as long as they should receive
+ * events, since the event bus no longer keeps them alive. Note that a
+ * {@link com.ekuefler.supereventbus.RegistrationLeakDetector} holds registered objects strongly,
+ * so objects will not be collected while one is installed.
+ *
+ * @author ekuefler@gmail.com (Erik Kuefler)
+ */
+public class WeakOwnerReferences implements OwnerReferences {
+
+  private final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+
+  @Override
+  public Reference create(Object owner) {
+    return new WeakOwnerReference(owner, queue);
+  }
+
+  @Override
+  public Reference poll() {
+    return (WeakOwnerReference) queue.poll();
+  }
+
+  private static class WeakOwnerReference extends WeakReference<Object> implements Reference {
+    WeakOwnerReference(Object owner, ReferenceQueue<Object> queue) {
+      super(owner, queue);
+    }
+  }
+}
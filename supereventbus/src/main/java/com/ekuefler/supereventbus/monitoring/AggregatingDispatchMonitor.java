@@ -0,0 +1,105 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus.monitoring;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link DispatchMonitor} that keeps running totals of the number of invocations, number of
+ * filter rejections, number of deferred events, total time, and maximum time for each handler
+ * method. Metrics can be read at
+ * any time via {@link #getMetrics}. For example:
+ *
+ * <pre>
+ * AggregatingDispatchMonitor monitor = new AggregatingDispatchMonitor();
+ * eventBus.setDispatchMonitor(monitor);
+ * ...
+ * for (HandlerMetrics metrics : monitor.getMetrics()) {
+ *   GWT.log(metrics.toString());
+ * }
+ * </pre>
+ *
+ * Times are measured with millisecond precision, so the times reported for very fast handlers may
+ * be zero.
+ *
+ * @author ekuefler@gmail.com (Erik Kuefler)
+ */
+public class AggregatingDispatchMonitor implements DispatchMonitor {
+
+  // Metrics for each handler, keyed by owner class and then by handler name
+  private final Map<Class<?>, Map<String, HandlerMetrics>> metricsByOwnerClass =
+      new HashMap<Class<?>, Map<String, HandlerMetrics>>();
+
+  // Metrics for each handler in the order in which they were first dispatched
+  private final List<HandlerMetrics> allMetrics = new ArrayList<HandlerMetrics>();
+
+  // Start times of dispatches in progress. There is usually at most one, but more are possible if
+  // this monitor is shared by multiple event buses and a handler on one posts to another.
+  private long[] startTimes = new long[4];
+  private int depth = 0;
+
+  @Override
+  public void beginDispatch(Class<?> ownerClass, String handlerName, Class<?> eventClass) {
+    if (depth == startTimes.length) {
+      long[] newStartTimes = new long[depth * 2];
+      System.arraycopy(startTimes, 0, newStartTimes, 0, depth);
+      startTimes = newStartTimes;
+    }
+    startTimes[depth++] = now();
+  }
+
+  @Override
+  public void endDispatch(
+      Class<?> ownerClass, String handlerName, Class<?> eventClass, DispatchOutcome outcome) {
+    long elapsed = now() - startTimes[--depth];
+    getOrCreateMetrics(ownerClass, handlerName).record(elapsed, outcome);
+  }
+
+  /**
+   * Returns the metrics collected for each handler method that has been dispatched since this
+   * monitor was created or last reset, in the order in which they were first dispatched.
+   */
+  public List<HandlerMetrics> getMetrics() {
+    return new ArrayList<HandlerMetrics>(allMetrics);
+  }
+
+  /** Discards all metrics collected so far. */
+  public void reset() {
+    metricsByOwnerClass.clear();
+    allMetrics.clear();
+  }
+
+  /** Returns the current time in milliseconds. Can be overridden to supply a different clock. */
+  protected long now() {
+    return System.currentTimeMillis();
+  }
+
+  private HandlerMetrics getOrCreateMetrics(Class<?> ownerClass, String handlerName) {
+    Map<String, HandlerMetrics> metricsByName = metricsByOwnerClass.get(ownerClass);
+    if (metricsByName == null) {
+      metricsByName = new HashMap<String, HandlerMetrics>();
+      metricsByOwnerClass.put(ownerClass, metricsByName);
+    }
+    HandlerMetrics metrics = metricsByName.get(handlerName);
+    if (metrics == null) {
+      metrics = new HandlerMetrics(ownerClass, handlerName);
+      metricsByName.put(handlerName, metrics);
+      allMetrics.add(metrics);
+    }
+    return metrics;
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus.monitoring;
+
+/**
+ * Receives a callback immediately before and after each handler method is invoked by an event bus,
+ * which can be used to measure how often handlers are invoked and how long they take. Monitors are
+ * installed via {@link com.ekuefler.supereventbus.EventBus#setDispatchMonitor}. See
+ * {@link AggregatingDispatchMonitor} for a simple implementation that collects metrics for each
+ * handler.
+ * <p>
+ * Monitors are invoked for every handler dispatch, so implementations should be cheap and must not
+ * throw exceptions.
+ * <p>
+ * While a monitor is being notified, {@link com.ekuefler.supereventbus.EventBus#getCurrentDispatch}
+ * returns the context of the event being dispatched. If causality tracking is enabled, this can be
+ * used to attribute the cost of each handler to the event at the root of its cascade.
+ *
+ * @author ekuefler@gmail.com (Erik Kuefler)
+ */
+public interface DispatchMonitor {
+  /**
+   * Invoked immediately before a handler method is invoked.
+   *
+   * @param ownerClass class of the object on which the handler method is defined
+   * @param handlerName human-readable name of the handler method, consisting of the method's name
+   *          and the type of event it handles
+   * @param eventClass class of the event being dispatched
+   */
+  void beginDispatch(Class<?> ownerClass, String handlerName, Class<?> eventClass);
+
+  /**
+   * Invoked immediately after a handler method has been invoked, even if it threw an exception.
+   *
+   * @param ownerClass class of the object on which the handler method is defined
+   * @param handlerName human-readable name of the handler method, consisting of the method's name
+   *          and the type of event it handles
+   * @param eventClass class of the event being dispatched
+   * @param outcome whether the method was invoked, rejected the event via one of its filters, or
+   *          deferred the event because it batches, throttles, or debounces its events
+   */
+  void endDispatch(
+      Class<?> ownerClass, String handlerName, Class<?> eventClass, DispatchOutcome outcome);
+}
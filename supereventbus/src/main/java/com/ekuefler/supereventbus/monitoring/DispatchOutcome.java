@@ -0,0 +1,35 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus.monitoring;
+
+/**
+ * The result of dispatching an event to a single handler method, as reported to a
+ * {@link DispatchMonitor} and recorded by a {@link DispatchTrace}.
+ *
+ * @author ekuefler@gmail.com (Erik Kuefler)
+ */
+public enum DispatchOutcome {
+  /** The handler method was invoked with the event. */
+  INVOKED,
+
+  /** The event was rejected by one of the handler method's filters, so it wasn't invoked. */
+  REJECTED,
+
+  /**
+   * The handler method wasn't invoked yet because it batches, throttles, or debounces its events.
+   * The event was buffered or merged with other events, and the invocation that eventually handles
+   * it is reported separately when it happens.
+   */
+  DEFERRED
+}
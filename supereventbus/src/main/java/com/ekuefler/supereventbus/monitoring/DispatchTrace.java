@@ -0,0 +1,305 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus.monitoring;
+
+import com.google.gwt.core.shared.GWT;
+
+/**
+ * Records a timeline of everything an event bus does while dispatching events: each post
+ * (including re-entrant posts made by handlers), each time handlers are queued for an event, the
+ * start and end of each handler invocation, each event rejected by a handler's filters, and each
+ * event deferred by a batched, throttled, or debounced handler. This makes it possible to see
+ * exactly how a cascade of events unfolded and where time was spent. Traces are installed via
+ * {@link com.ekuefler.supereventbus.EventBus#setDispatchTrace}.
+ * <p>
+ * Entries are kept in a ring buffer of fixed size, so that only the most recent entries are
+ * retained and a trace can be left enabled in production sessions without using unbounded memory.
+ * The buffer can be exported at any time via {@link #toChromeTraceJson} in the trace event format
+ * understood by Chrome's <code>about:tracing</code> and DevTools performance panel. Handler
+ * invocations can also be mirrored to the browser's User Timing API (<code>performance.mark</code>
+ * and <code>performance.measure</code>) so that they show up directly in browser profiles.
+ * <p>
+ * The recording methods on this class are called by the event bus and should not be called
+ * directly.
+ *
+ * @author ekuefler@gmail.com (Erik Kuefler)
+ */
+public class DispatchTrace {
+
+  // Kinds of entries in the trace
+  private static final byte POST = 0;
+  private static final byte REENTRANT_POST = 1;
+  private static final byte ENQUEUE = 2;
+  private static final byte HANDLER_BEGIN = 3;
+  private static final byte HANDLER_END = 4;
+  private static final byte REJECTION = 5;
+  private static final byte DEFERRAL = 6;
+
+  // The ring buffer, stored as parallel arrays to avoid allocating an object per entry. Handler
+  // labels are only built when the trace is exported, so recording doesn't create any strings.
+  private final byte[] kinds;
+  private final double[] times;
+  private final Class<?>[] ownerClasses;
+  private final String[] handlerNames;
+  private final Class<?>[] eventClasses;
+  private final int[] counts;
+
+  // Index at which the next entry will be written, and the number of entries currently stored
+  private int next = 0;
+  private int size = 0;
+
+  // Number of entries that were overwritten because the buffer was full
+  private int droppedCount = 0;
+
+  private boolean userTimingEnabled = false;
+
+  /**
+   * Creates a trace that retains at most the given number of entries. Each handler invocation uses
+   * two entries and each post uses at least two entries.
+   *
+   * @param capacity maximum number of entries to retain
+   */
+  public DispatchTrace(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive");
+    }
+    kinds = new byte[capacity];
+    times = new double[capacity];
+    ownerClasses = new Class<?>[capacity];
+    handlerNames = new String[capacity];
+    eventClasses = new Class<?>[capacity];
+    counts = new int[capacity];
+  }
+
+  /**
+   * Sets whether handler invocations should also be reported to the browser's User Timing API as
+   * marks and measures. Marks and measures are cleared as soon as they are created so that they
+   * don't accumulate, but are still captured by browser profiles that are recording at the time.
+   * Has no effect outside of a browser or in browsers that don't support the API. Disabled by
+   * default.
+   */
+  public void setUserTimingEnabled(boolean userTimingEnabled) {
+    this.userTimingEnabled = userTimingEnabled;
+  }
+
+  /** Records that an event was posted, either from outside of a handler or from within one. */
+  public void recordPost(Class<?> eventClass, boolean reentrant) {
+    record(reentrant ? REENTRANT_POST : POST, null, null, eventClass, 0);
+  }
+
+  /** Records that the given number of handler invocations were queued for an event. */
+  public void recordEnqueue(Class<?> eventClass, int handlerCount) {
+    record(ENQUEUE, null, null, eventClass, handlerCount);
+  }
+
+  /** Records that a handler method is about to be invoked. */
+  public void recordHandlerBegin(Class<?> ownerClass, String handlerName, Class<?> eventClass) {
+    record(HANDLER_BEGIN, ownerClass, handlerName, eventClass, 0);
+    if (userTimingEnabled && GWT.isClient()) {
+      mark(getHandlerLabel(ownerClass, handlerName));
+    }
+  }
+
+  /**
+   * Records that a handler method has returned, along with whether it was invoked, rejected the
+   * event via its filters, or deferred the event.
+   */
+  public void recordHandlerEnd(
+      Class<?> ownerClass, String handlerName, Class<?> eventClass, DispatchOutcome outcome) {
+    if (outcome == DispatchOutcome.REJECTED) {
+      record(REJECTION, ownerClass, handlerName, eventClass, 0);
+    } else if (outcome == DispatchOutcome.DEFERRED) {
+      record(DEFERRAL, ownerClass, handlerName, eventClass, 0);
+    }
+    record(HANDLER_END, ownerClass, handlerName, eventClass, 0);
+    if (userTimingEnabled && GWT.isClient()) {
+      measure(getHandlerLabel(ownerClass, handlerName));
+    }
+  }
+
+  /** Returns the number of entries currently retained in the trace. */
+  public int getEntryCount() {
+    return size;
+  }
+
+  /** Returns the number of entries that have been discarded to make room for newer entries. */
+  public int getDroppedCount() {
+    return droppedCount;
+  }
+
+  /** Discards all entries recorded so far. */
+  public void clear() {
+    for (int i = 0; i < kinds.length; i++) {
+      ownerClasses[i] = null;
+      handlerNames[i] = null;
+      eventClasses[i] = null;
+    }
+    next = 0;
+    size = 0;
+    droppedCount = 0;
+  }
+
+  /**
+   * Returns the retained entries as a JSON string in Chrome's trace event format, which can be
+   * saved to a file and loaded into <code>about:tracing</code> or the DevTools performance panel.
+   * Handler invocations are reported as duration events and everything else as instant events.
+   * The end of an invocation whose beginning has already been overwritten is left out, since it
+   * can't be matched with anything.
+   */
+  public String toChromeTraceJson() {
+    StringBuilder json = new StringBuilder("{\"traceEvents\":[");
+    int start = (next - size + kinds.length) % kinds.length;
+    int openHandlers = 0;
+    boolean first = true;
+    for (int i = 0; i < size; i++) {
+      int index = (start + i) % kinds.length;
+      if (kinds[index] == HANDLER_BEGIN) {
+        openHandlers++;
+      } else if (kinds[index] == HANDLER_END) {
+        if (openHandlers == 0) {
+          continue;
+        }
+        openHandlers--;
+      }
+      if (!first) {
+        json.append(',');
+      }
+      first = false;
+      json.append("{\"name\":");
+      appendString(json, getEntryName(index));
+      json.append(",\"cat\":\"").append(getCategory(kinds[index])).append('"');
+      json.append(",\"ph\":\"").append(getPhase(kinds[index])).append('"');
+      if (kinds[index] != HANDLER_BEGIN && kinds[index] != HANDLER_END) {
+        json.append(",\"s\":\"t\"");
+      }
+      json.append(",\"ts\":").append((long) (times[index] * 1000));
+      json.append(",\"pid\":1,\"tid\":1,\"args\":{\"event\":");
+      appendString(json, eventClasses[index].getName());
+      if (kinds[index] == ENQUEUE) {
+        json.append(",\"handlers\":").append(counts[index]);
+      }
+      json.append("}}");
+    }
+    return json.append("]}").toString();
+  }
+
+  /**
+   * Returns the current time in milliseconds, with sub-millisecond precision where available. Can
+   * be overridden to supply a different clock.
+   */
+  protected double now() {
+    return GWT.isClient() ? performanceNow() : System.currentTimeMillis();
+  }
+
+  private void record(
+      byte kind, Class<?> ownerClass, String handlerName, Class<?> eventClass, int count) {
+    kinds[next] = kind;
+    times[next] = now();
+    ownerClasses[next] = ownerClass;
+    handlerNames[next] = handlerName;
+    eventClasses[next] = eventClass;
+    counts[next] = count;
+    next = (next + 1) % kinds.length;
+    if (size < kinds.length) {
+      size++;
+    } else {
+      droppedCount++;
+    }
+  }
+
+  private String getEntryName(int index) {
+    switch (kinds[index]) {
+      case POST:
+        return "post";
+      case REENTRANT_POST:
+        return "post (re-entrant)";
+      case ENQUEUE:
+        return "enqueue";
+      case REJECTION:
+        return "rejected by " + getHandlerLabel(ownerClasses[index], handlerNames[index]);
+      case DEFERRAL:
+        return "deferred by " + getHandlerLabel(ownerClasses[index], handlerNames[index]);
+      default:
+        return getHandlerLabel(ownerClasses[index], handlerNames[index]);
+    }
+  }
+
+  private static String getCategory(byte kind) {
+    switch (kind) {
+      case POST:
+      case REENTRANT_POST:
+        return "post";
+      case ENQUEUE:
+        return "enqueue";
+      case REJECTION:
+        return "filter";
+      case DEFERRAL:
+        return "deferral";
+      default:
+        return "handler";
+    }
+  }
+
+  private static String getPhase(byte kind) {
+    switch (kind) {
+      case HANDLER_BEGIN:
+        return "B";
+      case HANDLER_END:
+        return "E";
+      default:
+        return "i";
+    }
+  }
+
+  private static String getHandlerLabel(Class<?> ownerClass, String handlerName) {
+    return ownerClass.getName() + "." + handlerName;
+  }
+
+  private static void appendString(StringBuilder json, String value) {
+    json.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        json.append('\\');
+      }
+      json.append(c);
+    }
+    json.append('"');
+  }
+
+  private static native double performanceNow() /*-{
+    var performance = $wnd.performance;
+    return performance && performance.now ? performance.now() : new Date().getTime();
+  }-*/;
+
+  private static native void mark(String name) /*-{
+    var performance = $wnd.performance;
+    if (performance && performance.mark) {
+      performance.mark(name + ' start');
+    }
+  }-*/;
+
+  private static native void measure(String name) /*-{
+    var performance = $wnd.performance;
+    if (performance && performance.measure) {
+      try {
+        performance.measure(name, name + ' start');
+      } catch (e) {
+        // The start mark was cleared or never created, so there is nothing to measure
+      }
+      performance.clearMarks(name + ' start');
+      performance.clearMeasures(name);
+    }
+  }-*/;
+}
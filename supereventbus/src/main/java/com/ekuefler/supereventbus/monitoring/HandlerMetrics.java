@@ -0,0 +1,95 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus.monitoring;
+
+/**
+ * Metrics collected by an {@link AggregatingDispatchMonitor} for a single handler method.
+ *
+ * @author ekuefler@gmail.com (Erik Kuefler)
+ */
+public class HandlerMetrics {
+
+  private final Class<?> ownerClass;
+  private final String handlerName;
+  private int invocationCount;
+  private int rejectionCount;
+  private int deferralCount;
+  private long totalMillis;
+  private long maxMillis;
+
+  HandlerMetrics(Class<?> ownerClass, String handlerName) {
+    this.ownerClass = ownerClass;
+    this.handlerName = handlerName;
+  }
+
+  void record(long elapsedMillis, DispatchOutcome outcome) {
+    if (outcome == DispatchOutcome.REJECTED) {
+      rejectionCount++;
+      return;
+    } else if (outcome == DispatchOutcome.DEFERRED) {
+      deferralCount++;
+      return;
+    }
+    invocationCount++;
+    totalMillis += elapsedMillis;
+    if (elapsedMillis > maxMillis) {
+      maxMillis = elapsedMillis;
+    }
+  }
+
+  /** Returns the class of the object on which the handler method is defined. */
+  public Class<?> getOwnerClass() {
+    return ownerClass;
+  }
+
+  /** Returns the human-readable name of the handler method. */
+  public String getHandlerName() {
+    return handlerName;
+  }
+
+  /** Returns the number of times the handler method was invoked. */
+  public int getInvocationCount() {
+    return invocationCount;
+  }
+
+  /** Returns the number of events that were rejected by the handler method's filters. */
+  public int getRejectionCount() {
+    return rejectionCount;
+  }
+
+  /**
+   * Returns the number of events that the handler method deferred because it batches, throttles, or
+   * debounces its events. The invocations that eventually handle them are counted separately.
+   */
+  public int getDeferralCount() {
+    return deferralCount;
+  }
+
+  /** Returns the total number of milliseconds spent in the handler method. */
+  public long getTotalMillis() {
+    return totalMillis;
+  }
+
+  /** Returns the largest number of milliseconds spent in a single invocation of the method. */
+  public long getMaxMillis() {
+    return maxMillis;
+  }
+
+  @Override
+  public String toString() {
+    return ownerClass.getName() + "." + handlerName + ": " + invocationCount + " invocations, "
+        + rejectionCount + " rejections, " + deferralCount + " deferrals, " + totalMillis
+        + "ms total, " + maxMillis + "ms max";
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus.priority;
+
+/**
+ * The priority of an event, which determines how soon its handlers run relative to other queued
+ * events. Whenever an event bus is ready to invoke another handler, it always chooses one from the
+ * highest-priority lane containing queued work. Within a single lane, events are handled in the
+ * order in which they were posted.
+ * <p>
+ * This is useful when a large cascade of events is being dispatched and something urgent, like an
+ * event reflecting user input, is posted in the middle of it - giving the urgent event a higher
+ * priority lets it skip ahead of all the queued work rather than waiting for the cascade to finish.
+ * An event's priority can be declared by implementing {@link HasEventPriority} or passed explicitly
+ * to {@link com.ekuefler.supereventbus.EventBus#post(Object, EventPriority)}. Events have
+ * {@link #NORMAL} priority by default.
+ * <p>
+ * Note that event priorities are independent of handler priorities specified via
+ * {@link WithPriority}, which only determine the order of handlers for a single event.
+ *
+ * @author ekuefler@gmail.com (Erik Kuefler)
+ */
+public enum EventPriority {
+  /** For events that should be handled before any other queued work, such as user input. */
+  HIGH,
+
+  /** The default priority for events. */
+  NORMAL,
+
+  /** For bulk work that should yield to everything else in the queue. */
+  LOW
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus.priority;
+
+/**
+ * Implemented by events that declare their own {@link EventPriority}. Whenever an event
+ * implementing this interface is posted without an explicit priority, it is dispatched in the lane
+ * returned by {@link #getEventPriority}. For example:
+ *
+ * <pre>
+ * class KeyPressedEvent implements HasEventPriority {
+ *   &#064;Override
+ *   public EventPriority getEventPriority() {
+ *     return EventPriority.HIGH;
+ *   }
+ * }
+ * </pre>
+ *
+ * @author ekuefler@gmail.com (Erik Kuefler)
+ */
+public interface HasEventPriority {
+  /** Returns the priority with which this event should be dispatched. */
+  EventPriority getEventPriority();
+}
@@ -13,7 +13,11 @@
  */
 package com.ekuefler.supereventbus.rebind;
 
+import com.ekuefler.supereventbus.impl.BatchingEventHandlerMethod;
+import com.ekuefler.supereventbus.impl.ClassBasedEventHandlerMethod;
+import com.ekuefler.supereventbus.impl.DebouncedEventHandlerMethod;
 import com.ekuefler.supereventbus.impl.EventHandlerMethod;
+import com.ekuefler.supereventbus.impl.ThrottledEventHandlerMethod;
 import com.ekuefler.supereventbus.multievent.MultiEvent;
 import com.google.gwt.core.ext.Generator;
 import com.google.gwt.core.ext.GeneratorContext;
@@ -74,10 +78,14 @@ public class EventRegistrationGenerator extends Generator {
         packageName, simpleName);
 
     composer.addImplementedInterface(eventBinderType.getName());
+    composer.addImport(BatchingEventHandlerMethod.class.getCanonicalName());
+    composer.addImport(ClassBasedEventHandlerMethod.class.getCanonicalName());
+    composer.addImport(DebouncedEventHandlerMethod.class.getCanonicalName());
     composer.addImport(EventHandlerMethod.class.getCanonicalName());
     composer.addImport(LinkedList.class.getCanonicalName());
     composer.addImport(List.class.getCanonicalName());
     composer.addImport(MultiEvent.class.getCanonicalName());
+    composer.addImport(ThrottledEventHandlerMethod.class.getCanonicalName());
 
     PrintWriter printWriter = context.tryCreate(logger, packageName, simpleName);
     return printWriter != null ? composer.createSourceWriter(context, printWriter) : null;
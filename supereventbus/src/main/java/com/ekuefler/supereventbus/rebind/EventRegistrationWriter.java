@@ -14,20 +14,26 @@
 package com.ekuefler.supereventbus.rebind;
 
 import com.ekuefler.supereventbus.Subscribe;
+import com.ekuefler.supereventbus.batching.BatchWindow;
 import com.ekuefler.supereventbus.filtering.When;
 import com.ekuefler.supereventbus.multievent.EventTypes;
 import com.ekuefler.supereventbus.multievent.MultiEvent;
 import com.ekuefler.supereventbus.priority.WithPriority;
+import com.ekuefler.supereventbus.timing.Debounce;
+import com.ekuefler.supereventbus.timing.Throttle;
 import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.core.ext.TreeLogger.Type;
 import com.google.gwt.core.ext.UnableToCompleteException;
 import com.google.gwt.core.ext.typeinfo.JClassType;
 import com.google.gwt.core.ext.typeinfo.JMethod;
+import com.google.gwt.core.ext.typeinfo.JParameterizedType;
 import com.google.gwt.core.ext.typeinfo.JPrimitiveType;
 import com.google.gwt.core.ext.typeinfo.JType;
 import com.google.gwt.user.rebind.SourceWriter;
 
 import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -68,33 +74,51 @@ class EventRegistrationWriter {
 
       // Generate a list of types that should be handled by this method. Normally, this is a single
       // type equal to the method's first argument. If the argument in a MultiEvent, this list of
-      // types comes from the @EventTypes annotation on the parameter.
+      // types comes from the @EventTypes annotation on the parameter. If the argument is a batch,
+      // the type is the list's element type.
+      // The hierarchy of the handled type is also recorded so that cache entries for it can be
+      // built before any events are posted, which is only done for single concrete classes.
       final List<String> paramTypes = new LinkedList<String>();
       final boolean isMultiEvent;
+      final List<String> hierarchy;
+      final BatchWindow batchWindow = method.getParameters()[0].getAnnotation(BatchWindow.class);
       if (getFirstParameterType(method).equals(MultiEvent.class.getCanonicalName())) {
         isMultiEvent = true;
+        hierarchy = null;
         for (Class<?> type : method.getParameters()[0].getAnnotation(EventTypes.class).value()) {
           paramTypes.add(type.getCanonicalName());
         }
+      } else if (batchWindow != null) {
+        isMultiEvent = false;
+        hierarchy = getHierarchy(method.getParameterTypes()[0].isParameterized().getTypeArgs()[0]);
+        paramTypes.add(getBatchElementType(method));
       } else {
         isMultiEvent = false;
+        hierarchy = getHierarchy(method.getParameterTypes()[0]);
         paramTypes.add(getFirstParameterType(method));
       }
 
       // Add an implementation of EventHandlerMethod to the list for each type this method handles
       for (String paramType : paramTypes) {
-        writer.println("methods.add(new EventHandlerMethod<%s, %s>() {", targetType, paramType);
+        // Batched, throttled, and debounced methods are wrapped in a method that decides when to
+        // invoke the generated one
+        String invokedType = batchWindow != null ? String.format("List<%s>", paramType) : paramType;
+        String wrapper = getWrapper(method, targetType, paramType);
+        writer.println("methods.add(%snew ClassBasedEventHandlerMethod<%s, %s>() {",
+            wrapper != null ? wrapper : "", targetType, invokedType);
         writer.indent();
         {
           // Implement invoke() by calling the method, first checking filters if provided
-          writer.println("public void invoke(%s instance, %s arg) {", targetType, paramType);
+          writer.println("public boolean invoke(%s instance, %s arg) {", targetType, invokedType);
           String invocation = String.format(
               isMultiEvent ? "instance.%s(new MultiEvent(arg));" : "instance.%s(arg);",
               method.getName());
           if (method.getAnnotation(When.class) != null) {
-            writer.indentln("if (%s) { %s }", getFilter(method), invocation);
+            writer.indentln("if (%s) { %s return true; }", getFilter(method), invocation);
+            writer.indentln("return false;");
           } else {
             writer.indentln(invocation);
+            writer.indentln("return true;");
           }
           writer.println("}");
 
@@ -109,9 +133,32 @@ class EventRegistrationWriter {
               ? -method.getAnnotation(WithPriority.class).value()
               : 0);
           writer.println("}");
+
+          // Implement getName using the method's name and the type of event it handles
+          writer.println("public String getName() {");
+          writer.indentln("return \"%s(%s)\";", method.getName(), invokedType);
+          writer.println("}");
+
+          // Implement getMatchingKey using the generated class, which is unique to this method and
+          // type and shared by every instance created for it
+          writer.println("public Object getMatchingKey() {");
+          writer.indentln("return getClass();");
+          writer.println("}");
+
+          // Implement getEventType and getEventTypeHierarchy using class literals
+          writer.println("public Class<?> getEventType() {");
+          writer.indentln("return %s.class;", paramType);
+          writer.println("}");
+          writer.println("public Class<?>[] getEventTypeHierarchy() {");
+          if (hierarchy != null) {
+            writer.indentln("return new Class<?>[] {%s};", join(hierarchy, ".class, ") + ".class");
+          } else {
+            writer.indentln("return null;");
+          }
+          writer.println("}");
         }
         writer.outdent();
-        writer.println("});");
+        writer.println(wrapper != null ? "}));" : "});");
       }
     }
 
@@ -167,6 +214,125 @@ class EventRegistrationWriter {
         throw new UnableToCompleteException();
       }
     }
+
+    BatchWindow batchWindow = method.getParameters()[0].getAnnotation(BatchWindow.class);
+    if (batchWindow != null) {
+      // Checks specific to batched methods
+      JParameterizedType listType = method.getParameterTypes()[0].isParameterized();
+      if (listType == null
+          || !listType.getQualifiedSourceName().equals(List.class.getCanonicalName())) {
+        logger.log(Type.ERROR,
+            String.format("@BatchWindow in method %s.%s must be applied to a parameter of type "
+                + "List with a type argument.", target.getName(), method.getName()));
+        throw new UnableToCompleteException();
+      }
+      JClassType elementType = listType.getTypeArgs()[0];
+      if (elementType.isWildcard() != null || elementType.isParameterized() != null) {
+        logger.log(Type.ERROR,
+            String.format("The batch element type in method %s.%s must not be a wildcard or "
+                + "parameterized type.", target.getName(), method.getName()));
+        throw new UnableToCompleteException();
+      } else if (elementType.getQualifiedSourceName().equals(MultiEvent.class.getCanonicalName())) {
+        logger.log(Type.ERROR,
+            String.format("MultiEvents cannot be batched in method %s.%s.",
+                target.getName(), method.getName()));
+        throw new UnableToCompleteException();
+      } else if (batchWindow.count() < 0 || batchWindow.millis() < 0
+          || (batchWindow.count() == 0 && batchWindow.millis() == 0)) {
+        logger.log(Type.ERROR,
+            String.format("@BatchWindow in method %s.%s must specify a positive count, a positive "
+                + "number of millis, or both.", target.getName(), method.getName()));
+        throw new UnableToCompleteException();
+      }
+    }
+
+    // Checks for rate-limited methods
+    Throttle throttle = method.getAnnotation(Throttle.class);
+    Debounce debounce = method.getAnnotation(Debounce.class);
+    if (throttle != null && debounce != null) {
+      logger.log(Type.ERROR,
+          String.format("Method %s.%s must not be annotated with both @Throttle and @Debounce.",
+              target.getName(), method.getName()));
+      throw new UnableToCompleteException();
+    } else if ((throttle != null || debounce != null) && batchWindow != null) {
+      logger.log(Type.ERROR,
+          String.format("Batched method %s.%s must not be annotated with @Throttle or @Debounce.",
+              target.getName(), method.getName()));
+      throw new UnableToCompleteException();
+    } else if ((throttle != null && throttle.value() <= 0)
+        || (debounce != null && debounce.value() <= 0)) {
+      logger.log(Type.ERROR,
+          String.format("The interval for method %s.%s must be positive.",
+              target.getName(), method.getName()));
+      throw new UnableToCompleteException();
+    }
+  }
+
+  // Returns the beginning of an expression wrapping the generated handler method for the given
+  // method, up to the point where the generated method should be passed, or null if the generated
+  // method should be used unwrapped
+  private String getWrapper(JMethod method, String targetType, String paramType) {
+    BatchWindow batchWindow = method.getParameters()[0].getAnnotation(BatchWindow.class);
+    if (batchWindow != null) {
+      return String.format("new BatchingEventHandlerMethod<%s, %s>(%d, %d, ",
+          targetType, paramType, batchWindow.count(), batchWindow.millis());
+    } else if (method.getAnnotation(Throttle.class) != null) {
+      return String.format("new ThrottledEventHandlerMethod<%s, %s>(%d, ",
+          targetType, paramType, method.getAnnotation(Throttle.class).value());
+    } else if (method.getAnnotation(Debounce.class) != null) {
+      return String.format("new DebouncedEventHandlerMethod<%s, %s>(%d, ",
+          targetType, paramType, method.getAnnotation(Debounce.class).value());
+    }
+    return null;
+  }
+
+  // Returns the names of the given type and all of its supertypes, starting with the type itself,
+  // or null if the type isn't a concrete class or if any of its supertypes can't be referenced
+  // from generated code
+  private List<String> getHierarchy(JType type) {
+    JClassType classType = type.isClass();
+    if (classType == null || classType.isAbstract() || !isPublic(classType)) {
+      return null;
+    }
+    List<String> supertypes = new ArrayList<String>();
+    for (JClassType supertype : classType.getFlattenedSupertypeHierarchy()) {
+      if (!isPublic(supertype)) {
+        return null;
+      } else if (supertype != classType) {
+        supertypes.add(supertype.getQualifiedSourceName());
+      }
+    }
+    Collections.sort(supertypes);
+    supertypes.add(0, classType.getQualifiedSourceName());
+    return supertypes;
+  }
+
+  // Returns whether the given type and all types enclosing it are public
+  private boolean isPublic(JClassType type) {
+    for (JClassType t = type; t != null; t = t.getEnclosingType()) {
+      if (!t.isPublic()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // Joins the given strings with the given separator
+  private static String join(List<String> strings, String separator) {
+    StringBuilder result = new StringBuilder();
+    for (String string : strings) {
+      if (result.length() > 0) {
+        result.append(separator);
+      }
+      result.append(string);
+    }
+    return result.toString();
+  }
+
+  // Returns the element type of the list accepted by the given batched method
+  private String getBatchElementType(JMethod method) {
+    return method.getParameterTypes()[0].isParameterized().getTypeArgs()[0]
+        .getQualifiedSourceName();
   }
 
   // Returns a boolean expression that should be used to check whether to invoke the given event
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus.timing;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Target;
+
+/**
+ * Delays a method annotated with {@link com.ekuefler.supereventbus.Subscribe} until events have
+ * stopped arriving for a given interval. Each event restarts the interval, and when it finally
+ * elapses the handler is invoked once with the most recent event. This is useful for handlers that
+ * only care about the final state after a burst of events, such as handlers that search as the user
+ * types:
+ *
+ * <pre>
+ * &#064;Subscribe &#064;Debounce(250)
+ * void onQueryChanged(QueryChangedEvent event) {
+ *   search(event.getQuery());
+ * }
+ * </pre>
+ *
+ * Debouncing is tracked separately for each registered object. Deferred invocations are run via the
+ * event bus's {@link com.ekuefler.supereventbus.TaskScheduler} and are cancelled when the object is
+ * unregistered. Filters specified with {@link com.ekuefler.supereventbus.filtering.When} are
+ * evaluated when the handler is actually invoked. This annotation cannot be combined with
+ * {@link Throttle}.
+ *
+ * @author ekuefler@gmail.com (Erik Kuefler)
+ */
+@Documented
+@Inherited
+@Target(value = ElementType.METHOD)
+public @interface Debounce {
+  /**
+   * The number of milliseconds that must pass without any new events before the handler is
+   * invoked. Must be positive.
+   */
+  int value();
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus.timing;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Target;
+
+/**
+ * Limits how often a method annotated with {@link com.ekuefler.supereventbus.Subscribe} can be
+ * invoked. The first event is handled immediately. Any further events posted during the following
+ * interval are coalesced, and once the interval ends the handler is invoked once more with the most
+ * recent of them, starting a new interval. This is useful for handlers that react to rapidly-fired
+ * events like resizing or scrolling but don't need to see every single one:
+ *
+ * <pre>
+ * &#064;Subscribe &#064;Throttle(100)
+ * void onScroll(ScrollEvent event) {
+ *   updateVisibleRows();
+ * }
+ * </pre>
+ *
+ * Throttling is tracked separately for each registered object. Deferred invocations are run via the
+ * event bus's {@link com.ekuefler.supereventbus.TaskScheduler} and are cancelled when the object is
+ * unregistered. Filters specified with {@link com.ekuefler.supereventbus.filtering.When} are
+ * evaluated when the handler is actually invoked. This annotation cannot be combined with
+ * {@link Debounce}.
+ *
+ * @author ekuefler@gmail.com (Erik Kuefler)
+ */
+@Documented
+@Inherited
+@Target(value = ElementType.METHOD)
+public @interface Throttle {
+  /** The minimum number of milliseconds between invocations of the handler. Must be positive. */
+  int value();
+}
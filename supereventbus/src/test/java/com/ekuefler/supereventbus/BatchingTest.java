@@ -0,0 +1,199 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+import com.ekuefler.supereventbus.batching.BatchWindow;
+import com.ekuefler.supereventbus.filtering.EventFilter;
+import com.ekuefler.supereventbus.filtering.When;
+import com.ekuefler.supereventbus.impl.BatchingEventHandlerMethod;
+import com.ekuefler.supereventbus.impl.EventHandlerMethod;
+import com.ekuefler.supereventbus.monitoring.AggregatingDispatchMonitor;
+import com.ekuefler.supereventbus.monitoring.HandlerMetrics;
+import com.google.gwt.core.client.GWT;
+
+import java.util.LinkedList;
+import java.util.List;
+
+public class BatchingTest extends SuperEventBusTestCase {
+
+  public static class IsEnabled implements EventFilter<TestOwner, Object> {
+    @Override
+    public boolean accepts(TestOwner handler, Object event) {
+      return handler.enabled;
+    }
+  }
+
+  static class TestOwner {
+    interface MyRegistration extends EventRegistration<TestOwner> {}
+
+    private final List<List<String>> stringBatches = new LinkedList<List<String>>();
+    private final List<List<Integer>> integerBatches = new LinkedList<List<Integer>>();
+    private final List<List<Double>> doubleBatches = new LinkedList<List<Double>>();
+    private final List<Object> plainLists = new LinkedList<Object>();
+    private boolean enabled = true;
+
+    @Subscribe
+    void handleStrings(@BatchWindow(count = 3) List<String> events) {
+      stringBatches.add(events);
+    }
+
+    @Subscribe
+    void handleIntegers(@BatchWindow(count = 3, millis = 100) List<Integer> events) {
+      integerBatches.add(events);
+    }
+
+    @Subscribe
+    @When(IsEnabled.class)
+    void handleDoubles(@BatchWindow(millis = 100) List<Double> events) {
+      doubleBatches.add(events);
+    }
+
+    @Subscribe
+    void handleList(List<Object> event) {
+      plainLists.add(event);
+    }
+  }
+
+  private FakeTaskScheduler scheduler;
+  private TestOwner owner;
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    super.gwtSetUp();
+    scheduler = new FakeTaskScheduler();
+    eventBus.setTaskScheduler(scheduler);
+    owner = new TestOwner();
+    eventBus.register(owner, (TestOwner.MyRegistration) GWT.create(TestOwner.MyRegistration.class));
+  }
+
+  public void testShouldDeliverBatchWhenCountIsReached() {
+    eventBus.post("a");
+    eventBus.post("b");
+    assertEquals(0, owner.stringBatches.size());
+
+    eventBus.post("c");
+    eventBus.post("d");
+
+    assertEquals(1, owner.stringBatches.size());
+    assertEquals(listOf("a", "b", "c"), owner.stringBatches.get(0));
+  }
+
+  public void testShouldDeliverBatchWhenWindowCloses() {
+    eventBus.post(1);
+    scheduler.advance(50);
+    eventBus.post(2);
+    assertEquals(0, owner.integerBatches.size());
+
+    scheduler.advance(50);
+
+    assertEquals(1, owner.integerBatches.size());
+    assertEquals(listOf(1, 2), owner.integerBatches.get(0));
+  }
+
+  public void testShouldStartNewWindowAfterDelivery() {
+    eventBus.post(1);
+    eventBus.post(2);
+    eventBus.post(3); // Fills the batch, so no window should remain open
+    assertEquals(0, scheduler.getPendingTaskCount());
+
+    eventBus.post(4);
+    scheduler.advance(100);
+
+    assertEquals(2, owner.integerBatches.size());
+    assertEquals(listOf(1, 2, 3), owner.integerBatches.get(0));
+    assertEquals(listOf(4), owner.integerBatches.get(1));
+  }
+
+  public void testShouldApplyFiltersToEachBatch() {
+    eventBus.post(1.0);
+    scheduler.advance(100);
+    owner.enabled = false;
+    eventBus.post(2.0);
+    scheduler.advance(100);
+
+    assertEquals(1, owner.doubleBatches.size());
+    assertEquals(listOf(1.0), owner.doubleBatches.get(0));
+  }
+
+  public void testShouldDiscardPendingEventsWhenUnregistered() {
+    eventBus.post(1);
+    eventBus.unregister(owner);
+    scheduler.advance(100);
+
+    assertEquals(0, owner.integerBatches.size());
+    assertEquals(0, scheduler.getPendingTaskCount());
+  }
+
+  public void testShouldReportExceptionsFromDeferredBatches() {
+    final List<EventBusException> exceptions = new LinkedList<EventBusException>();
+    eventBus.addExceptionHandler(new ExceptionHandler() {
+      @Override
+      public void handleException(EventBusException e) {
+        exceptions.add(e);
+      }
+    });
+    Object thrower = new Object();
+    eventBus.addHandlerMethod(thrower,
+        new BatchingEventHandlerMethod<Object, Character>(0, 10,
+            new EventHandlerMethod<Object, List<Character>>() {
+              @Override
+              public boolean invoke(Object instance, List<Character> arg) {
+                throw new RuntimeException("expected");
+              }
+
+              @Override
+              public boolean acceptsArgument(Object arg) {
+                return arg instanceof Character;
+              }
+
+              @Override
+              public int getDispatchOrder() {
+                return 0;
+              }
+
+              @Override
+              public String getName() {
+                return "handleCharacters(List<Character>)";
+              }
+            }));
+
+    eventBus.post('a');
+    scheduler.advance(10);
+
+    assertEquals(1, exceptions.size());
+    assertSame(thrower, exceptions.get(0).getSource());
+    assertEquals(listOf('a'), exceptions.get(0).getEvent());
+  }
+
+  public void testShouldOnlyReportDeliveredBatchesToMonitor() {
+    AggregatingDispatchMonitor monitor = new AggregatingDispatchMonitor();
+    eventBus.setDispatchMonitor(monitor);
+
+    eventBus.post("a");
+    eventBus.post("b");
+    eventBus.post("c");
+
+    HandlerMetrics metrics = monitor.getMetrics().get(0);
+    assertEquals(1, metrics.getInvocationCount());
+    assertEquals(2, metrics.getDeferralCount());
+    assertEquals(0, metrics.getRejectionCount());
+  }
+
+  public void testShouldNotBatchListsWithoutBatchWindow() {
+    eventBus.post(listOf("x", "y"));
+
+    assertEquals(1, owner.plainLists.size());
+    assertEquals(0, owner.stringBatches.size());
+  }
+}
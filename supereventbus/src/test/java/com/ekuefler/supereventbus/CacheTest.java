@@ -13,8 +13,14 @@
  */
 package com.ekuefler.supereventbus;
 
+import com.ekuefler.supereventbus.impl.ClassBasedEventHandlerMethod;
+import com.ekuefler.supereventbus.impl.EventHandlerMethod;
 import com.google.gwt.core.client.GWT;
 
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
 public class CacheTest extends SuperEventBusTestCase {
 
   static class TestOwner {
@@ -28,6 +34,79 @@ public class CacheTest extends SuperEventBusTestCase {
     }
   }
 
+  static class SupertypeOwner {
+    interface MyRegistration extends EventRegistration<SupertypeOwner> {}
+
+    List<String> events = new LinkedList<String>();
+
+    @Subscribe
+    void handleString(String event) {
+      events.add("string");
+    }
+
+    @Subscribe
+    void handleCharSequence(CharSequence event) {
+      events.add("charSequence");
+    }
+
+    @Subscribe
+    void handleObject(Object event) {
+      events.add("object");
+    }
+  }
+
+  // Registration for TestOwner whose handler method counts how often it is asked to match events
+  static class CountingRegistration implements EventRegistration<TestOwner> {
+    // Identifies the handler method across calls to getMethods, so that its matches are shared
+    private final Object matchingKey = new Object();
+    int acceptCount = 0;
+
+    @Override
+    public List<EventHandlerMethod<TestOwner, ?>> getMethods() {
+      List<EventHandlerMethod<TestOwner, ?>> methods =
+          new LinkedList<EventHandlerMethod<TestOwner, ?>>();
+      methods.add(new ClassBasedEventHandlerMethod<TestOwner, String>() {
+        @Override
+        public boolean invoke(TestOwner instance, String arg) {
+          instance.handleString(arg);
+          return true;
+        }
+
+        @Override
+        public boolean acceptsArgument(Object arg) {
+          acceptCount++;
+          return arg instanceof String;
+        }
+
+        @Override
+        public int getDispatchOrder() {
+          return 0;
+        }
+
+        @Override
+        public String getName() {
+          return "handleString(String)";
+        }
+
+        @Override
+        public Object getMatchingKey() {
+          return matchingKey;
+        }
+
+        @Override
+        public Class<?> getEventType() {
+          return String.class;
+        }
+
+        @Override
+        public Class<?>[] getEventTypeHierarchy() {
+          return null;
+        }
+      });
+      return methods;
+    }
+  }
+
   public void testShouldInvokeHandlersRegisteredAfterFiring() {
     TestOwner owner1 = new TestOwner();
     TestOwner owner2 = new TestOwner();
@@ -67,4 +146,118 @@ public class CacheTest extends SuperEventBusTestCase {
     assertEquals(2, owner1.eventsHandled);
     assertEquals(1, owner2.eventsHandled);
   }
+
+  public void testShouldReuseMatchesFromOtherBuses() {
+    TestOwner owner1 = new TestOwner();
+    TestOwner owner2 = new TestOwner();
+    CountingRegistration registration = new CountingRegistration();
+    EventBus otherBus = new EventBus();
+    eventBus.register(owner1, registration);
+    eventBus.post("string");
+    eventBus.post(1);
+    assertEquals(3, registration.acceptCount); // String, Integer, and DeadEvent for the Integer
+
+    otherBus.register(owner2, registration);
+    otherBus.post("string");
+    otherBus.post(1);
+    otherBus.post(new Object());
+
+    assertEquals(1, owner1.eventsHandled);
+    assertEquals(1, owner2.eventsHandled);
+    assertEquals(4, registration.acceptCount); // Only Object was new to the second bus
+  }
+
+  public void testShouldEvictLeastRecentlyUsedEntries() {
+    TestOwner owner = new TestOwner();
+    eventBus.register(owner, (TestOwner.MyRegistration) GWT.create(TestOwner.MyRegistration.class));
+    eventBus.setDeadEventPolicy(DeadEventPolicy.DISABLED);
+    eventBus.setHandlerCacheLimit(2);
+
+    eventBus.post("a");
+    eventBus.post(1);
+    eventBus.post("b");
+    eventBus.post(1.0); // Evicts Integer, since String was used more recently
+    eventBus.post(1); // Evicts String
+    eventBus.post("c"); // Rebuilds the entry for String, evicting Double
+
+    EventBusStats stats = eventBus.stats();
+    assertEquals(3, owner.eventsHandled);
+    assertEquals(2, stats.getCacheEntryCount());
+    assertEquals(1, stats.getCacheHitCount());
+    assertEquals(5, stats.getCacheMissCount());
+    assertEquals(3, stats.getCacheEvictionCount());
+  }
+
+  public void testShouldNotCountDeadEventChecksAsLookups() {
+    eventBus.post(1); // Posts a DeadEvent, since the bus doesn't know yet whether anyone handles it
+    eventBus.post(1);
+    eventBus.post(1);
+
+    EventBusStats stats = eventBus.stats();
+    assertEquals(2, stats.getCacheHitCount()); // The Integer entry, but not the DeadEvent entry
+    assertEquals(2, stats.getCacheMissCount());
+  }
+
+  public void testShouldCloseScopesAfterEviction() {
+    TestOwner owner = new TestOwner();
+    RegistrationScope scope = eventBus.openScope();
+    scope.register(owner, (TestOwner.MyRegistration) GWT.create(TestOwner.MyRegistration.class));
+    eventBus.setDeadEventPolicy(DeadEventPolicy.DISABLED);
+    eventBus.setHandlerCacheLimit(1);
+
+    eventBus.post("a");
+    eventBus.post(1); // Evicts String, whose entry contained the scope's handler
+    scope.close();
+    eventBus.post("b");
+
+    assertEquals(1, owner.eventsHandled);
+  }
+
+  public void testShouldTrimCacheWhenLimitIsSet() {
+    eventBus.setDeadEventPolicy(DeadEventPolicy.DISABLED);
+    eventBus.post("a");
+    eventBus.post(1);
+    eventBus.post(1.0);
+
+    eventBus.setHandlerCacheLimit(1);
+    eventBus.post(1.0);
+    eventBus.setHandlerCacheLimit(0);
+    eventBus.post("a");
+
+    assertEquals(2, eventBus.stats().getCacheEntryCount());
+  }
+
+  public void testShouldWarmUpCacheBeforeEventsArePosted() {
+    SupertypeOwner owner = new SupertypeOwner();
+    eventBus.register(owner,
+        (SupertypeOwner.MyRegistration) GWT.create(SupertypeOwner.MyRegistration.class));
+
+    eventBus.warmUpCache(); // Builds entries for String and Object
+    assertEquals(2, eventBus.stats().getCacheEntryCount());
+
+    eventBus.post("a");
+    EventBusStats stats = eventBus.stats();
+    Collections.sort(owner.events);
+    assertEquals(listOf("charSequence", "object", "string"), owner.events);
+    assertEquals(1, stats.getCacheHitCount());
+    assertEquals(0, stats.getCacheMissCount());
+  }
+
+  public void testShouldWarmUpCacheOnRegistrationWhenEager() {
+    TestOwner owner1 = new TestOwner();
+    SupertypeOwner owner2 = new SupertypeOwner();
+    eventBus.setEagerCaching(true);
+    eventBus.register(owner1, (TestOwner.MyRegistration) GWT.create(TestOwner.MyRegistration.class));
+    eventBus.register(owner2,
+        (SupertypeOwner.MyRegistration) GWT.create(SupertypeOwner.MyRegistration.class));
+
+    eventBus.post("a");
+    eventBus.post(1);
+    EventBusStats stats = eventBus.stats();
+    assertEquals(1, owner1.eventsHandled);
+    Collections.sort(owner2.events);
+    assertEquals(listOf("charSequence", "object", "object", "string"), owner2.events);
+    assertEquals(1, stats.getCacheHitCount());
+    assertEquals(1, stats.getCacheMissCount()); // No handler takes Integer, so it isn't warmed
+  }
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+import com.ekuefler.supereventbus.priority.EventPriority;
+import com.google.gwt.core.client.GWT;
+
+import java.util.LinkedList;
+import java.util.List;
+
+public class CascadeLimitTest extends SuperEventBusTestCase {
+
+  class TestOwner {
+    private int stringCount = 0;
+
+    // Strings and integers trigger each other forever
+    @Subscribe
+    void handleString(String event) {
+      stringCount++;
+      eventBus.post(event.length());
+    }
+
+    @Subscribe
+    void handleInteger(Integer event) {
+      eventBus.post(String.valueOf(event));
+    }
+
+    // Each character posts two more, doubling the queue every time
+    @Subscribe
+    void handleCharacter(Character event) {
+      eventBus.post(event);
+      eventBus.post(event);
+    }
+
+    int longCount = 0;
+
+    @Subscribe
+    void handleLong(Long event) {
+      longCount++;
+    }
+  }
+
+  interface MyRegistration extends EventRegistration<TestOwner> {}
+
+  private TestOwner owner;
+  private List<EventBusException> exceptions;
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    super.gwtSetUp();
+    owner = new TestOwner();
+    eventBus.register(owner, (MyRegistration) GWT.create(MyRegistration.class));
+    exceptions = new LinkedList<EventBusException>();
+    eventBus.addExceptionHandler(new ExceptionHandler() {
+      @Override
+      public void handleException(EventBusException e) {
+        exceptions.add(e);
+      }
+    });
+  }
+
+  public void testShouldAbortCascadeExceedingMaxDepth() {
+    eventBus.setCascadeLimits(10, 0);
+
+    eventBus.post("a");
+
+    assertEquals(5, owner.stringCount);
+    assertEquals(1, exceptions.size());
+    assertTrue(exceptions.get(0) instanceof CascadeLimitException);
+    assertSame(owner, exceptions.get(0).getSource());
+    assertEquals(11, exceptions.get(0).getDispatchContext().getDepth());
+    assertEquals("Event cascade exceeded the maximum depth of 10: cycle java.lang.String -> "
+        + "java.lang.Integer -> java.lang.String", exceptions.get(0).getCause().getMessage());
+  }
+
+  public void testShouldAbortCascadeExceedingMaxQueueLength() {
+    eventBus.setCascadeLimits(0, 5);
+
+    eventBus.post('a');
+
+    assertEquals(1, exceptions.size());
+    assertTrue(exceptions.get(0) instanceof CascadeLimitException);
+    assertEquals("Dispatch queue exceeded the maximum length of 5 while posting cycle "
+        + "java.lang.Character -> java.lang.Character", exceptions.get(0).getCause().getMessage());
+    assertEquals(5, eventBus.stats().getPeakQueueLength());
+    assertEquals(0, eventBus.stats().getQueueDepth(EventPriority.NORMAL));
+  }
+
+  public void testShouldAllowPostingAfterAbort() {
+    eventBus.setCascadeLimits(10, 0);
+    eventBus.post("a");
+    eventBus.post("a");
+
+    assertEquals(10, owner.stringCount);
+    assertEquals(2, exceptions.size());
+  }
+
+  public void testShouldExposePeakValuesInStats() {
+    eventBus.setCascadeLimits(10, 0);
+    eventBus.post("a");
+
+    EventBusStats stats = eventBus.stats();
+    assertEquals(11, stats.getPeakCascadeDepth());
+    assertEquals(1, stats.getPeakQueueLength());
+    assertEquals(1, stats.getCascadeLimitCount());
+  }
+
+  public void testShouldNotCountSkippedHandlersTowardQueueLength() {
+    for (int i = 0; i < 3; i++) {
+      TestOwner pausedOwner = new TestOwner();
+      eventBus.register(pausedOwner, (MyRegistration) GWT.create(MyRegistration.class));
+      eventBus.pauseHandlers(pausedOwner);
+    }
+    eventBus.setCascadeLimits(0, 1);
+
+    eventBus.post(1L);
+
+    assertEquals(1, owner.longCount);
+    assertTrue(exceptions.isEmpty());
+  }
+
+  public void testShouldOnlyDiscardAbortedCascade() {
+    // The watchdog runs between handlers, outside of any cascade, so the event it posts starts a
+    // cascade of its own that waits behind the runaway one
+    eventBus.setSlowHandlerWatchdog(new SlowHandlerWatchdog(1000, 1) {
+      private boolean posted = false;
+
+      @Override
+      protected long now() {
+        if (!posted) {
+          posted = true;
+          eventBus.post(1L, EventPriority.LOW);
+        }
+        return 0;
+      }
+    });
+    eventBus.setCascadeLimits(10, 0);
+
+    eventBus.post("a");
+
+    assertEquals(5, owner.stringCount);
+    assertEquals(1, owner.longCount);
+    assertEquals(1, exceptions.size());
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+import com.google.gwt.core.client.GWT;
+
+import java.util.LinkedList;
+import java.util.List;
+
+public class CausalityTest extends SuperEventBusTestCase {
+
+  class TestOwner {
+    private final List<DispatchContext> contexts = new LinkedList<DispatchContext>();
+
+    @Subscribe
+    void handleString(String event) {
+      contexts.add(eventBus.getCurrentDispatch());
+      eventBus.post(event.length());
+    }
+
+    @Subscribe
+    void handleInteger(Integer event) {
+      contexts.add(eventBus.getCurrentDispatch());
+      if (event > 0) {
+        eventBus.post('a');
+      } else {
+        throw new RuntimeException("expected");
+      }
+    }
+
+    @Subscribe
+    void handleCharacter(Character event) {
+      contexts.add(eventBus.getCurrentDispatch());
+    }
+  }
+
+  interface MyRegistration extends EventRegistration<TestOwner> {}
+
+  private TestOwner owner;
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    super.gwtSetUp();
+    owner = new TestOwner();
+    eventBus.register(owner, (MyRegistration) GWT.create(MyRegistration.class));
+  }
+
+  public void testShouldNotTrackCausesByDefault() {
+    eventBus.post("abc");
+
+    assertEquals(3, owner.contexts.size());
+    for (DispatchContext context : owner.contexts) {
+      assertEquals(0, context.getId());
+      assertNull(context.getParent());
+      assertSame(context, context.getRoot());
+    }
+  }
+
+  public void testShouldLinkEventsToTheirCauses() {
+    eventBus.setCausalityTracking(true);
+
+    eventBus.post("abc");
+
+    DispatchContext string = owner.contexts.get(0);
+    DispatchContext integer = owner.contexts.get(1);
+    DispatchContext character = owner.contexts.get(2);
+    assertEquals("abc", string.getEvent());
+    assertEquals(3, integer.getEvent());
+    assertEquals('a', character.getEvent());
+
+    assertEquals(1, string.getId());
+    assertEquals(2, integer.getId());
+    assertEquals(3, character.getId());
+
+    assertNull(string.getParent());
+    assertSame(string, integer.getParent());
+    assertSame(integer, character.getParent());
+    assertSame(string, character.getRoot());
+  }
+
+  public void testShouldStartNewCascadeForEachTopLevelPost() {
+    eventBus.setCausalityTracking(true);
+
+    eventBus.post("abc");
+    eventBus.post('b');
+
+    DispatchContext last = owner.contexts.get(3);
+    assertEquals('b', last.getEvent());
+    assertEquals(4, last.getId());
+    assertNull(last.getParent());
+  }
+
+  public void testShouldExposeCausesInExceptions() {
+    final List<EventBusException> exceptions = new LinkedList<EventBusException>();
+    eventBus.addExceptionHandler(new ExceptionHandler() {
+      @Override
+      public void handleException(EventBusException e) {
+        exceptions.add(e);
+      }
+    });
+    eventBus.setCausalityTracking(true);
+
+    eventBus.post(""); // Posts 0, which throws an exception
+
+    assertEquals(1, exceptions.size());
+    DispatchContext context = exceptions.get(0).getDispatchContext();
+    assertEquals(0, context.getEvent());
+    assertEquals("", context.getParent().getEvent());
+    assertEquals("", context.getRoot().getEvent());
+  }
+}
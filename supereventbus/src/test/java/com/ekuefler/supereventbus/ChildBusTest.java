@@ -0,0 +1,172 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+import com.google.gwt.core.client.GWT;
+
+import java.util.LinkedList;
+import java.util.List;
+
+public class ChildBusTest extends SuperEventBusTestCase {
+
+  static class Flagged implements ForwardedEvent {
+    @Override
+    public String toString() {
+      return "flagged";
+    }
+  }
+
+  private final List<Object> handled = new LinkedList<Object>();
+
+  class ParentOwner {
+    @Subscribe
+    void handleObject(Object event) {
+      if (!(event instanceof DeadEvent)) {
+        handled.add("parent:" + event);
+      }
+    }
+
+    @Subscribe
+    void handleDeadEvent(DeadEvent event) {
+      handled.add("parentDead:" + event.getEvent());
+    }
+  }
+
+  class ChildOwner {
+    @Subscribe
+    void handleString(String event) {
+      handled.add("child:" + event);
+      if (event.equals("consume")) {
+        child.getCurrentDispatch().consume();
+      }
+    }
+
+    @Subscribe
+    void handleFlagged(Flagged event) {
+      handled.add("child:" + event);
+    }
+
+    @Subscribe
+    void handleDeadEvent(DeadEvent event) {
+      handled.add("childDead:" + event.getEvent());
+    }
+  }
+
+  class Relay {
+    @Subscribe
+    void handleBoolean(Boolean event) {
+      child.post("a");
+      handled.add("relay:done");
+    }
+  }
+
+  interface ParentRegistration extends EventRegistration<ParentOwner> {}
+  interface ChildRegistration extends EventRegistration<ChildOwner> {}
+  interface RelayRegistration extends EventRegistration<Relay> {}
+
+  private EventBus child;
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    super.gwtSetUp();
+    eventBus.register(new ParentOwner(), (ParentRegistration) GWT.create(ParentRegistration.class));
+  }
+
+  private void createChild(ForwardingPolicy policy) {
+    child = eventBus.createChild(policy);
+    child.register(new ChildOwner(), (ChildRegistration) GWT.create(ChildRegistration.class));
+  }
+
+  public void testShouldNotForwardByDefault() {
+    createChild(ForwardingPolicy.NONE);
+
+    child.post("a");
+    child.post(1);
+
+    assertEquals(listOf("child:a", "childDead:1"), handled);
+    assertSame(eventBus, child.getParent());
+  }
+
+  public void testShouldForwardUnhandledEvents() {
+    createChild(ForwardingPolicy.UNHANDLED);
+
+    child.post("a");
+    child.post(1);
+
+    assertEquals(listOf("child:a", "parent:1"), handled);
+  }
+
+  public void testShouldForwardEventsWhoseHandlersArePaused() {
+    child = eventBus.createChild(ForwardingPolicy.UNHANDLED);
+    ChildOwner owner = new ChildOwner();
+    child.register(owner, (ChildRegistration) GWT.create(ChildRegistration.class));
+    child.pauseHandlers(owner);
+
+    child.post("a");
+
+    assertEquals(listOf("parent:a"), handled);
+  }
+
+  public void testShouldForwardAllEventsAfterHandlingThemLocally() {
+    createChild(ForwardingPolicy.ALL);
+
+    child.post("a");
+    child.post(1);
+
+    assertEquals(listOf("child:a", "parent:a", "parent:1"), handled);
+  }
+
+  public void testShouldAlwaysForwardFlaggedEvents() {
+    createChild(ForwardingPolicy.NONE);
+
+    child.post(new Flagged());
+
+    assertEquals(listOf("child:flagged", "parent:flagged"), handled);
+  }
+
+  public void testShouldNotForwardConsumedEvents() {
+    createChild(ForwardingPolicy.ALL);
+
+    child.post("consume");
+
+    assertEquals(listOf("child:consume"), handled);
+  }
+
+  public void testShouldNotDeliverParentEventsToChild() {
+    createChild(ForwardingPolicy.ALL);
+
+    eventBus.post("a");
+
+    assertEquals(listOf("parent:a"), handled);
+  }
+
+  public void testShouldPostDeadEventsOnParentForForwardedEvents() {
+    child = eventBus.createChild(ForwardingPolicy.UNHANDLED);
+    EventBus grandchild = child.createChild(ForwardingPolicy.UNHANDLED);
+
+    grandchild.post(1);
+
+    assertEquals(listOf("parent:1"), handled);
+    assertTrue(grandchild.hasSubscribers(Integer.class));
+  }
+
+  public void testShouldQueueForwardedEventsBehindParentWork() {
+    createChild(ForwardingPolicy.ALL);
+    eventBus.register(new Relay(), (RelayRegistration) GWT.create(RelayRegistration.class));
+
+    eventBus.post(true);
+
+    assertEquals(listOf("parent:true", "child:a", "relay:done", "parent:a"), handled);
+  }
+}
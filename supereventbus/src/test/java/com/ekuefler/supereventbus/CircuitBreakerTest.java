@@ -0,0 +1,137 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+import com.google.gwt.core.client.GWT;
+
+import java.util.LinkedList;
+import java.util.List;
+
+public class CircuitBreakerTest extends SuperEventBusTestCase {
+
+  class TestOwner {
+    private final List<String> handled = new LinkedList<String>();
+    private boolean broken = true;
+    private boolean unregisterFirst = false;
+
+    @Subscribe
+    void handleString(String event) {
+      handled.add(event);
+      if (unregisterFirst) {
+        eventBus.unregister(this);
+      }
+      if (broken) {
+        throw new IllegalStateException("broken");
+      }
+    }
+  }
+
+  interface MyRegistration extends EventRegistration<TestOwner> {}
+
+  private FakeTaskScheduler scheduler;
+  private TestOwner owner;
+  private List<EventBusException> exceptions;
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    super.gwtSetUp();
+    scheduler = new FakeTaskScheduler();
+    eventBus.setTaskScheduler(scheduler);
+    owner = new TestOwner();
+    eventBus.register(owner, (MyRegistration) GWT.create(MyRegistration.class));
+    exceptions = new LinkedList<EventBusException>();
+    eventBus.addExceptionHandler(new ExceptionHandler() {
+      @Override
+      public void handleException(EventBusException e) {
+        exceptions.add(e);
+      }
+    });
+  }
+
+  public void testShouldNeverSuspendHandlersByDefault() {
+    for (int i = 0; i < 10; i++) {
+      eventBus.post("event");
+    }
+    assertEquals(10, owner.handled.size());
+  }
+
+  public void testShouldSuspendHandlerAfterConsecutiveFailures() {
+    eventBus.setCircuitBreaker(3, 0);
+    for (int i = 0; i < 5; i++) {
+      eventBus.post("event");
+    }
+
+    assertEquals(3, owner.handled.size());
+    assertEquals(4, exceptions.size());
+    assertTrue(exceptions.get(3) instanceof HandlerSuspendedException);
+    assertEquals(3, ((HandlerSuspendedException) exceptions.get(3)).getFailureCount());
+    assertSame(owner, exceptions.get(3).getSource());
+    assertEquals(1, eventBus.stats().getSuspendedHandlerCount());
+  }
+
+  public void testShouldNotSuspendHandlerThatUnregisteredItsOwner() {
+    eventBus.setCircuitBreaker(1, 0);
+    owner.unregisterFirst = true;
+
+    eventBus.post("event");
+
+    assertEquals(1, exceptions.size());
+    assertFalse(exceptions.get(0) instanceof HandlerSuspendedException);
+    assertEquals(0, eventBus.stats().getSuspendedHandlerCount());
+  }
+
+  public void testShouldResetFailureCountOnSuccess() {
+    eventBus.setCircuitBreaker(2, 0);
+    eventBus.post("event");
+    owner.broken = false;
+    eventBus.post("event");
+    owner.broken = true;
+    eventBus.post("event");
+    eventBus.post("event");
+
+    assertEquals(4, owner.handled.size());
+    assertEquals(1, eventBus.stats().getHandlerSuspensionCount());
+  }
+
+  public void testShouldResumeHandlerManually() {
+    eventBus.setCircuitBreaker(1, 0);
+    eventBus.post("event");
+    owner.broken = false;
+    eventBus.resumeHandlers(owner);
+    eventBus.post("event");
+
+    assertEquals(2, owner.handled.size());
+    assertEquals(0, eventBus.stats().getSuspendedHandlerCount());
+  }
+
+  public void testShouldResumeHandlerAfterBackoff() {
+    eventBus.setCircuitBreaker(1, 1000);
+    eventBus.post("event");
+    eventBus.post("event");
+    assertEquals(1, owner.handled.size());
+
+    scheduler.advance(1000);
+    eventBus.post("event");
+    assertEquals(2, owner.handled.size());
+  }
+
+  public void testShouldCancelResumeWhenUnregistered() {
+    eventBus.setCircuitBreaker(1, 1000);
+    eventBus.post("event");
+    eventBus.unregister(owner);
+
+    assertEquals(0, scheduler.getPendingTaskCount());
+    assertEquals(0, eventBus.stats().getSuspendedHandlerCount());
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+import com.ekuefler.supereventbus.impl.EventHandlerMethod;
+import com.ekuefler.supereventbus.priority.WithPriority;
+import com.google.gwt.core.client.GWT;
+
+import java.util.LinkedList;
+import java.util.List;
+
+public class ConsumeTest extends SuperEventBusTestCase {
+
+  class TestOwner {
+    private final List<String> handled = new LinkedList<String>();
+
+    @Subscribe
+    @WithPriority(10)
+    void handleFirst(String event) {
+      handled.add("first:" + event);
+      if (event.equals("consume")) {
+        eventBus.getCurrentDispatch().consume();
+        eventBus.post("after");
+      }
+    }
+
+    @Subscribe
+    void handleSecond(String event) {
+      handled.add("second:" + event);
+    }
+
+    @Subscribe
+    @WithPriority(-10)
+    void handleThird(String event) {
+      handled.add("third:" + event);
+    }
+  }
+
+  interface MyRegistration extends EventRegistration<TestOwner> {}
+
+  private TestOwner owner;
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    super.gwtSetUp();
+    owner = new TestOwner();
+    eventBus.register(owner, (MyRegistration) GWT.create(MyRegistration.class));
+  }
+
+  public void testShouldDeliverToAllHandlersWhenNotConsumed() {
+    eventBus.post("normal");
+    assertEquals(listOf("first:normal", "second:normal", "third:normal"), owner.handled);
+  }
+
+  public void testShouldSkipLowerPriorityHandlersWhenConsumed() {
+    eventBus.post("consume");
+    assertEquals(
+        listOf("first:consume", "first:after", "second:after", "third:after"), owner.handled);
+  }
+
+  public void testShouldCountConsumedEvents() {
+    eventBus.post("consume");
+    eventBus.post("normal");
+
+    assertEquals(1, eventBus.stats().getConsumedEventCount());
+    assertEquals(2, eventBus.stats().getSkippedHandlerCount());
+  }
+
+  public void testShouldExposeEventInContext() {
+    final List<Object> events = new LinkedList<Object>();
+    eventBus.addHandlerMethod(new Object(),
+        new EventHandlerMethod<Object, Integer>() {
+          @Override
+          public boolean invoke(Object instance, Integer arg) {
+            events.add(eventBus.getCurrentDispatch().getEvent());
+            return true;
+          }
+
+          @Override
+          public boolean acceptsArgument(Object arg) {
+            return arg instanceof Integer;
+          }
+
+          @Override
+          public int getDispatchOrder() {
+            return 0;
+          }
+
+          @Override
+          public String getName() {
+            return "handleInteger(Integer)";
+          }
+        });
+
+    eventBus.post(123);
+
+    assertEquals(listOf(123), events);
+  }
+
+  public void testShouldNotAllowGettingContextOutsideOfHandler() {
+    try {
+      eventBus.getCurrentDispatch();
+      fail("Exception not thrown");
+    } catch (IllegalStateException expected) {}
+  }
+}
@@ -18,6 +18,8 @@ import com.ekuefler.supereventbus.filtering.EventFilter;
 import com.ekuefler.supereventbus.filtering.When;
 import com.google.gwt.core.client.GWT;
 
+import java.util.Map;
+
 public class DeadEventTest extends SuperEventBusTestCase {
 
   public static class Never implements EventFilter<Object, Object> {
@@ -31,6 +33,7 @@ public class DeadEventTest extends SuperEventBusTestCase {
     interface MyRegistration extends EventRegistration<TestOwner> {}
 
     private DeadEvent handledEvent;
+    private int deadEventsHandled = 0;
 
     @Subscribe
     void handleInteger(int event) {}
@@ -42,6 +45,7 @@ public class DeadEventTest extends SuperEventBusTestCase {
     @Subscribe
     void handleDeadEvent(DeadEvent event) {
       this.handledEvent = event;
+      deadEventsHandled++;
     }
   }
 
@@ -69,4 +73,37 @@ public class DeadEventTest extends SuperEventBusTestCase {
     eventBus.post(123.0);
     assertNull(owner.handledEvent);
   }
+
+  public void testShouldNotFireDeadEventWhenDisabled() throws Exception {
+    eventBus.setDeadEventPolicy(DeadEventPolicy.DISABLED);
+    eventBus.post("no handler");
+
+    assertNull(owner.handledEvent);
+    assertEquals(1, eventBus.stats().getDeadEventCount());
+  }
+
+  public void testShouldSampleDeadEvents() throws Exception {
+    eventBus.setDeadEventPolicy(DeadEventPolicy.sampled(3));
+    for (int i = 0; i < 7; i++) {
+      eventBus.post("no handler");
+    }
+
+    assertEquals(2, owner.deadEventsHandled);
+    assertEquals(7, eventBus.stats().getDeadEventCount());
+  }
+
+  public void testShouldAggregateDeadEventCounts() throws Exception {
+    eventBus.setDeadEventPolicy(DeadEventPolicy.AGGREGATED);
+    eventBus.post("no handler");
+    eventBus.post("no handler");
+    eventBus.post('c');
+    eventBus.post(123);
+
+    assertNull(owner.handledEvent);
+    Map<Class<?>, Integer> counts = eventBus.drainDeadEventCounts();
+    assertEquals(2, counts.size());
+    assertEquals(2, (int) counts.get(String.class));
+    assertEquals(1, (int) counts.get(Character.class));
+    assertTrue(eventBus.drainDeadEventCounts().isEmpty());
+  }
 }
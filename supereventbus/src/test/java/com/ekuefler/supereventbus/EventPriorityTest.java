@@ -0,0 +1,92 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+import com.ekuefler.supereventbus.priority.EventPriority;
+import com.ekuefler.supereventbus.priority.HasEventPriority;
+import com.google.gwt.core.client.GWT;
+
+import java.util.LinkedList;
+import java.util.List;
+
+public class EventPriorityTest extends SuperEventBusTestCase {
+
+  static class UrgentEvent implements HasEventPriority {
+    @Override
+    public EventPriority getEventPriority() {
+      return EventPriority.HIGH;
+    }
+
+    @Override
+    public String toString() {
+      return "urgent";
+    }
+  }
+
+  class TestOwner {
+    private final List<Object> events = new LinkedList<Object>();
+
+    @Subscribe
+    void handleInteger(Integer event) {
+      events.add(event);
+      if (event == 0) {
+        // Start a cascade and post urgent events in the middle of it
+        eventBus.post(1);
+        eventBus.post(2);
+        eventBus.post("low", EventPriority.LOW);
+        eventBus.post(new UrgentEvent());
+        eventBus.post("high", EventPriority.HIGH);
+      }
+    }
+
+    @Subscribe
+    void handleString(String event) {
+      events.add(event);
+    }
+
+    @Subscribe
+    void handleUrgentEvent(UrgentEvent event) {
+      events.add(event.toString());
+    }
+  }
+
+  interface MyRegistration extends EventRegistration<TestOwner> {}
+
+  private TestOwner owner;
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    super.gwtSetUp();
+    owner = new TestOwner();
+    eventBus.register(owner, (MyRegistration) GWT.create(MyRegistration.class));
+  }
+
+  public void testShouldDispatchHigherPriorityEventsFirst() {
+    eventBus.post(0);
+    assertEquals(listOf(0, "urgent", "high", 1, 2, "low"), owner.events);
+  }
+
+  public void testShouldReportQueueStatisticsPerPriority() {
+    eventBus.post(0);
+
+    EventBusStats stats = eventBus.stats();
+    assertEquals(0, stats.getQueueDepth(EventPriority.NORMAL));
+    assertEquals(2, stats.getPeakQueueDepth(EventPriority.NORMAL));
+    assertEquals(2, stats.getPeakQueueDepth(EventPriority.HIGH));
+    assertEquals(1, stats.getPeakQueueDepth(EventPriority.LOW));
+    assertEquals(3, stats.getEnqueuedCount(EventPriority.NORMAL));
+    assertEquals(2, stats.getEnqueuedCount(EventPriority.HIGH));
+    assertEquals(1, stats.getEnqueuedCount(EventPriority.LOW));
+  }
+}
@@ -109,5 +109,24 @@ public class ExceptionTest extends SuperEventBusTestCase {
     // Expect no exceptions
   }
 
+  public void testShouldSkipStackTracesForLightweightExceptions() {
+    final List<EventBusException> exceptions = new LinkedList<EventBusException>();
+    eventBus.addExceptionHandler(new ExceptionHandler() {
+      @Override
+      public void handleException(EventBusException e) {
+        exceptions.add(e);
+      }
+    });
+    eventBus.setLightweightExceptions(true);
+
+    eventBus.post("string"); // Will throw an exception
+
+    assertEquals(1, exceptions.size());
+    assertEquals("string", exceptions.get(0).getEvent());
+    assertEquals(owner, exceptions.get(0).getSource());
+    assertTrue(exceptions.get(0).getCause() instanceof ExpectedExceptionForTest);
+    assertEquals(0, exceptions.get(0).getStackTrace().length);
+  }
+
   private static class ExpectedExceptionForTest extends RuntimeException {}
 }
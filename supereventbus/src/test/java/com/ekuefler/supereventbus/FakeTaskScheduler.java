@@ -0,0 +1,76 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link TaskScheduler} that never runs anything on its own. Instead, tests advance a fake clock
+ * and any commands that have come due are run in the order in which they were scheduled.
+ */
+class FakeTaskScheduler implements TaskScheduler {
+
+  private final List<FakeTask> tasks = new ArrayList<FakeTask>();
+  private int now = 0;
+
+  @Override
+  public Task schedule(int delayMillis, Runnable command) {
+    FakeTask task = new FakeTask(now + delayMillis, command);
+    tasks.add(task);
+    return task;
+  }
+
+  /** Advances the clock by the given number of milliseconds, running all commands that come due. */
+  void advance(int millis) {
+    int end = now + millis;
+    FakeTask next;
+    while ((next = nextTaskDueBy(end)) != null) {
+      tasks.remove(next);
+      now = next.dueTime;
+      next.command.run();
+    }
+    now = end;
+  }
+
+  /** Returns the number of commands that are scheduled but have not yet run. */
+  int getPendingTaskCount() {
+    return tasks.size();
+  }
+
+  private FakeTask nextTaskDueBy(int time) {
+    FakeTask next = null;
+    for (FakeTask task : tasks) {
+      if (task.dueTime <= time && (next == null || task.dueTime < next.dueTime)) {
+        next = task;
+      }
+    }
+    return next;
+  }
+
+  private class FakeTask implements Task {
+    final int dueTime;
+    final Runnable command;
+
+    FakeTask(int dueTime, Runnable command) {
+      this.dueTime = dueTime;
+      this.command = command;
+    }
+
+    @Override
+    public void cancel() {
+      tasks.remove(this);
+    }
+  }
+}
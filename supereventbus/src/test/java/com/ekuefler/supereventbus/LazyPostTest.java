@@ -0,0 +1,129 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+import com.google.gwt.core.client.GWT;
+
+public class LazyPostTest extends SuperEventBusTestCase {
+
+  static class StringOwner {
+    interface MyRegistration extends EventRegistration<StringOwner> {}
+
+    private String handledEvent;
+
+    @Subscribe
+    void handleString(String event) {
+      handledEvent = event;
+    }
+  }
+
+  static class DeadEventOwner {
+    interface MyRegistration extends EventRegistration<DeadEventOwner> {}
+
+    private DeadEvent handledEvent;
+
+    @Subscribe
+    void handleDeadEvent(DeadEvent event) {
+      handledEvent = event;
+    }
+  }
+
+  static class CountingFactory implements EventFactory<String> {
+    int created = 0;
+
+    @Override
+    public String create() {
+      created++;
+      return "created";
+    }
+  }
+
+  public void testShouldConservativelyReportSubscribersForUnknownClass() {
+    assertTrue(eventBus.hasSubscribers(String.class));
+  }
+
+  public void testShouldReportNoSubscribersOnceClassIsKnown() {
+    eventBus.post("string");
+    assertFalse(eventBus.hasSubscribers(String.class));
+  }
+
+  public void testShouldReportSubscribersAfterRegistering() {
+    eventBus.post("string");
+    eventBus.register(new StringOwner(),
+        (StringOwner.MyRegistration) GWT.create(StringOwner.MyRegistration.class));
+
+    assertTrue(eventBus.hasSubscribers(String.class));
+    eventBus.post("string");
+    assertTrue(eventBus.hasSubscribers(String.class));
+  }
+
+  public void testShouldReportNoSubscribersAfterUnregistering() {
+    StringOwner owner = new StringOwner();
+    eventBus.register(owner,
+        (StringOwner.MyRegistration) GWT.create(StringOwner.MyRegistration.class));
+    eventBus.post("string");
+    eventBus.unregister(owner);
+
+    assertFalse(eventBus.hasSubscribers(String.class));
+  }
+
+  public void testShouldNotCreateEventWithoutSubscribers() {
+    CountingFactory factory = new CountingFactory();
+    eventBus.post("string");
+    eventBus.post(String.class, factory);
+
+    assertEquals(0, factory.created);
+  }
+
+  public void testShouldCreateAndPostEventWithSubscribers() {
+    StringOwner owner = new StringOwner();
+    eventBus.register(owner,
+        (StringOwner.MyRegistration) GWT.create(StringOwner.MyRegistration.class));
+    CountingFactory factory = new CountingFactory();
+
+    eventBus.post(String.class, factory);
+
+    assertEquals(1, factory.created);
+    assertEquals("created", owner.handledEvent);
+  }
+
+  public void testShouldCreateEventForDeadEventSubscribers() {
+    DeadEventOwner owner = new DeadEventOwner();
+    eventBus.register(owner,
+        (DeadEventOwner.MyRegistration) GWT.create(DeadEventOwner.MyRegistration.class));
+    CountingFactory factory = new CountingFactory();
+    eventBus.post("string");
+
+    eventBus.post(String.class, factory);
+
+    assertEquals(1, factory.created);
+    assertEquals("created", owner.handledEvent.getEvent());
+  }
+
+  public void testShouldNotCreateEventForDeadEventSubscribersWhenNotPosting() {
+    DeadEventOwner owner = new DeadEventOwner();
+    eventBus.register(owner,
+        (DeadEventOwner.MyRegistration) GWT.create(DeadEventOwner.MyRegistration.class));
+    CountingFactory factory = new CountingFactory();
+    eventBus.setDeadEventPolicy(DeadEventPolicy.DISABLED);
+    eventBus.post("string");
+
+    eventBus.post(String.class, factory);
+    eventBus.setDeadEventPolicy(DeadEventPolicy.AGGREGATED);
+    eventBus.post(String.class, factory);
+
+    assertEquals(0, factory.created);
+    assertNull(owner.handledEvent);
+  }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+import com.ekuefler.supereventbus.impl.ClassBasedEventHandlerMethod;
+import com.ekuefler.supereventbus.impl.EventHandlerMethod;
+import com.google.gwt.core.client.GWT;
+
+import java.util.LinkedList;
+import java.util.List;
+
+public class LazyRegistrationTest extends SuperEventBusTestCase {
+
+  class TestOwner {
+    private final List<Object> events = new LinkedList<Object>();
+
+    @Subscribe
+    void handleString(String event) {
+      events.add(event);
+    }
+
+    @Subscribe
+    void handleInteger(Integer event) {
+      events.add(event);
+    }
+  }
+
+  interface MyRegistration extends EventRegistration<TestOwner> {}
+
+  // Registration for TestOwner that counts how often its handler methods are created
+  class CountingRegistration implements EventRegistration<TestOwner> {
+    int getMethodsCount = 0;
+
+    @Override
+    public List<EventHandlerMethod<TestOwner, ?>> getMethods() {
+      getMethodsCount++;
+      List<EventHandlerMethod<TestOwner, ?>> methods =
+          new LinkedList<EventHandlerMethod<TestOwner, ?>>();
+      methods.add(new ClassBasedEventHandlerMethod<TestOwner, String>() {
+        @Override
+        public boolean invoke(TestOwner instance, String arg) {
+          instance.handleString(arg);
+          return true;
+        }
+
+        @Override
+        public boolean acceptsArgument(Object arg) {
+          return arg instanceof String;
+        }
+
+        @Override
+        public int getDispatchOrder() {
+          return 0;
+        }
+
+        @Override
+        public String getName() {
+          return "handleString(String)";
+        }
+
+        @Override
+        public Object getMatchingKey() {
+          return CountingRegistration.class;
+        }
+
+        @Override
+        public Class<?> getEventType() {
+          return String.class;
+        }
+
+        @Override
+        public Class<?>[] getEventTypeHierarchy() {
+          return null;
+        }
+      });
+      return methods;
+    }
+  }
+
+  public void testShouldCreateHandlersOnlyForPostedEvents() {
+    TestOwner owner = new TestOwner();
+    eventBus.registerLazily(owner, (MyRegistration) GWT.create(MyRegistration.class));
+    assertTrue(eventBus.stats().getLiveHandlerCounts().isEmpty());
+    assertEquals(1, eventBus.stats().getLazyRegistrationCount());
+    assertEquals(1, eventBus.stats().getOwnerCountsByClass().get(TestOwner.class).intValue());
+
+    eventBus.post("a");
+    assertEquals(1, eventBus.stats().getLiveHandlerCounts().get(0).intValue());
+    assertEquals(1, eventBus.stats().getLazyRegistrationCount());
+    assertEquals(1, eventBus.stats().getOwnerCountsByClass().get(TestOwner.class).intValue());
+
+    eventBus.post(1);
+    eventBus.post("b");
+    assertEquals(2, eventBus.stats().getLiveHandlerCounts().get(0).intValue());
+    assertEquals(0, eventBus.stats().getLazyRegistrationCount());
+    assertEquals(listOf("a", 1, "b"), owner.events);
+  }
+
+  public void testShouldCreateHandlersForObjectsRegisteredAfterPosting() {
+    TestOwner owner1 = new TestOwner();
+    TestOwner owner2 = new TestOwner();
+    eventBus.registerLazily(owner1, (MyRegistration) GWT.create(MyRegistration.class));
+    eventBus.post("a");
+    eventBus.registerLazily(owner2, (MyRegistration) GWT.create(MyRegistration.class));
+    eventBus.post("b");
+
+    assertEquals(listOf("a", "b"), owner1.events);
+    assertEquals(listOf("b"), owner2.events);
+  }
+
+  public void testShouldInvokeLazyHandlersInRegistrationOrder() {
+    final List<Object> owners = new LinkedList<Object>();
+    TestOwner owner1 = new TestOwner() {
+      @Override
+      void handleString(String event) {
+        owners.add(this);
+      }
+    };
+    TestOwner owner2 = new TestOwner() {
+      @Override
+      void handleString(String event) {
+        owners.add(this);
+      }
+    };
+    eventBus.registerLazily(owner1, (MyRegistration) GWT.create(MyRegistration.class));
+    eventBus.registerLazily(owner2, (MyRegistration) GWT.create(MyRegistration.class));
+    eventBus.post("a");
+
+    assertEquals(listOf(owner1, owner2), owners);
+  }
+
+  public void testShouldUnregisterBeforeHandlersAreCreated() {
+    TestOwner owner = new TestOwner();
+    eventBus.registerLazily(owner, (MyRegistration) GWT.create(MyRegistration.class));
+    eventBus.unregister(owner);
+    eventBus.post("a");
+
+    assertTrue(owner.events.isEmpty());
+    assertEquals(0, eventBus.stats().getLazyRegistrationCount());
+    try {
+      eventBus.unregister(owner);
+      fail("Exception not thrown");
+    } catch (IllegalArgumentException expected) {}
+  }
+
+  public void testShouldUnregisterAfterSomeHandlersAreCreated() {
+    TestOwner owner = new TestOwner();
+    eventBus.registerLazily(owner, (MyRegistration) GWT.create(MyRegistration.class));
+    eventBus.post("a");
+    eventBus.unregister(owner);
+    eventBus.post("b");
+    eventBus.post(1);
+
+    assertEquals(listOf("a"), owner.events);
+    assertEquals(0, eventBus.stats().getLazyRegistrationCount());
+  }
+
+  public void testShouldPauseHandlersNotYetCreated() {
+    TestOwner owner = new TestOwner();
+    eventBus.registerLazily(owner, (MyRegistration) GWT.create(MyRegistration.class));
+    eventBus.pauseHandlers(owner);
+    eventBus.post("a");
+    eventBus.unpauseHandlers(owner);
+    eventBus.post(1);
+
+    assertEquals(listOf(1), owner.events);
+  }
+
+  public void testShouldReportSubscribersForPendingRegistrations() {
+    eventBus.post("a");
+    assertFalse(eventBus.hasSubscribers(String.class));
+
+    eventBus.registerLazily(new TestOwner(), (MyRegistration) GWT.create(MyRegistration.class));
+    assertTrue(eventBus.hasSubscribers(String.class));
+  }
+
+  public void testShouldNotCreateMethodsOfRegistrationsThatDontMatch() {
+    CountingRegistration registration = new CountingRegistration();
+    TestOwner owner1 = new TestOwner();
+    TestOwner owner2 = new TestOwner();
+    eventBus.registerLazily(owner1, registration);
+    eventBus.registerLazily(owner2, registration);
+
+    eventBus.post(1); // Also checks for DeadEvent handlers
+    assertEquals(1, registration.getMethodsCount); // Only to decide what the class matches
+    assertEquals(2, eventBus.stats().getLazyRegistrationCount());
+
+    eventBus.post("a");
+    assertEquals(3, registration.getMethodsCount);
+    assertEquals(0, eventBus.stats().getLazyRegistrationCount());
+    assertEquals(listOf("a"), owner1.events);
+    assertEquals(listOf("a"), owner2.events);
+  }
+
+  public void testShouldKeepDeliveringEventsAfterTrimmingRegistrations() {
+    List<TestOwner> owners = new LinkedList<TestOwner>();
+    for (int i = 0; i < 10; i++) {
+      TestOwner owner = new TestOwner();
+      owners.add(owner);
+      eventBus.registerLazily(owner, (MyRegistration) GWT.create(MyRegistration.class));
+    }
+    eventBus.post("a");
+    for (int i = 0; i < 8; i++) {
+      eventBus.unregister(owners.remove(0));
+    }
+    TestOwner newOwner = new TestOwner();
+    eventBus.registerLazily(newOwner, (MyRegistration) GWT.create(MyRegistration.class));
+    eventBus.post("b");
+    eventBus.post(1);
+
+    assertEquals(listOf("a", "b", 1), owners.get(0).events);
+    assertEquals(listOf("a", "b", 1), owners.get(1).events);
+    assertEquals(listOf("b", 1), newOwner.events);
+    assertEquals(0, eventBus.stats().getLazyRegistrationCount());
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+import com.google.gwt.core.client.GWT;
+
+import java.util.LinkedList;
+import java.util.List;
+
+public class LeakDetectorTest extends SuperEventBusTestCase {
+
+  static class TestOwner {
+    interface MyRegistration extends EventRegistration<TestOwner> {}
+
+    boolean detached;
+
+    @Subscribe
+    void handleString(String event) {}
+  }
+
+  // A detector that remembers its warnings instead of logging them
+  static class RecordingLeakDetector extends RegistrationLeakDetector {
+    final List<String> warnings = new LinkedList<String>();
+    final List<Exception> sites = new LinkedList<Exception>();
+
+    RecordingLeakDetector(int ownerThreshold) {
+      super(ownerThreshold);
+    }
+
+    @Override
+    protected void warn(String message, Exception registrationSite) {
+      warnings.add(message);
+      sites.add(registrationSite);
+    }
+  }
+
+  private RecordingLeakDetector detector;
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    super.gwtSetUp();
+    detector = new RecordingLeakDetector(3);
+    eventBus.setLeakDetector(detector);
+  }
+
+  public void testShouldWarnWhenThresholdReached() {
+    register(new TestOwner());
+    register(new TestOwner());
+    assertTrue(detector.warnings.isEmpty());
+
+    TestOwner third = new TestOwner();
+    register(third);
+
+    assertEquals(1, detector.warnings.size());
+    assertTrue(detector.warnings.get(0).startsWith(
+        "3 objects of class " + TestOwner.class.getName()));
+    assertSame(detector.getRegistrationSite(third), detector.sites.get(0));
+  }
+
+  public void testShouldWarnAgainWhenCountKeepsGrowing() {
+    for (int i = 0; i < 12; i++) {
+      register(new TestOwner());
+    }
+
+    // Warnings are issued at 3, 6, and 12 objects
+    assertEquals(3, detector.warnings.size());
+    assertTrue(detector.warnings.get(2).startsWith("12 objects"));
+  }
+
+  public void testShouldNotCountUnregisteredObjects() {
+    for (int i = 0; i < 5; i++) {
+      TestOwner owner = new TestOwner();
+      register(owner);
+      eventBus.unregister(owner);
+    }
+
+    assertTrue(detector.warnings.isEmpty());
+    assertEquals(0, detector.getRegisteredOwnerCount(TestOwner.class));
+  }
+
+  public void testShouldTrackObjectsInGroupsButNotGroups() {
+    OwnerGroup<TestOwner> group = eventBus.createOwnerGroup(
+        (TestOwner.MyRegistration) GWT.create(TestOwner.MyRegistration.class));
+    group.add(new TestOwner());
+    group.add(new TestOwner());
+
+    assertEquals(2, detector.getRegisteredOwnerCount(TestOwner.class));
+    assertEquals(0, detector.getRegisteredOwnerCount(OwnerGroup.class));
+
+    group.close();
+    assertEquals(0, detector.getRegisteredOwnerCount(TestOwner.class));
+  }
+
+  public void testShouldRecordRegistrationSites() {
+    TestOwner owner = new TestOwner();
+    register(owner);
+    assertNotNull(detector.getRegistrationSite(owner));
+
+    eventBus.unregister(owner);
+    assertNull(detector.getRegistrationSite(owner));
+  }
+
+  public void testShouldWarnOnceWhenDispatchingToDetachedOwner() {
+    detector.setDetachedCheck(new RegistrationLeakDetector.DetachedCheck() {
+      @Override
+      public boolean isDetached(Object owner) {
+        return ((TestOwner) owner).detached;
+      }
+    });
+    TestOwner owner = new TestOwner();
+    register(owner);
+
+    eventBus.post("event");
+    assertTrue(detector.warnings.isEmpty());
+
+    owner.detached = true;
+    eventBus.post("event");
+    eventBus.post("event");
+
+    assertEquals(1, detector.warnings.size());
+    assertTrue(detector.warnings.get(0).contains("detached object of class "
+        + TestOwner.class.getName()));
+    assertSame(detector.getRegistrationSite(owner), detector.sites.get(0));
+  }
+
+  private void register(TestOwner owner) {
+    eventBus.register(owner, (TestOwner.MyRegistration) GWT.create(TestOwner.MyRegistration.class));
+  }
+}
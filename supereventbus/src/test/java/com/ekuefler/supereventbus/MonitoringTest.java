@@ -0,0 +1,142 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+import com.ekuefler.supereventbus.filtering.EventFilter;
+import com.ekuefler.supereventbus.filtering.When;
+import com.ekuefler.supereventbus.monitoring.AggregatingDispatchMonitor;
+import com.ekuefler.supereventbus.monitoring.DispatchMonitor;
+import com.ekuefler.supereventbus.monitoring.DispatchOutcome;
+import com.ekuefler.supereventbus.monitoring.HandlerMetrics;
+import com.google.gwt.core.client.GWT;
+
+import java.util.LinkedList;
+import java.util.List;
+
+public class MonitoringTest extends SuperEventBusTestCase {
+
+  public static class IsPositive implements EventFilter<Object, Integer> {
+    @Override
+    public boolean accepts(Object handler, Integer event) {
+      return event > 0;
+    }
+  }
+
+  // A monitor whose clock only advances when told to
+  static class FakeClockMonitor extends AggregatingDispatchMonitor {
+    long time = 0;
+
+    @Override
+    protected long now() {
+      return time;
+    }
+  }
+
+  class TestOwner {
+    @Subscribe
+    void handleString(String event) {
+      monitor.time += event.length();
+    }
+
+    @Subscribe
+    @When(IsPositive.class)
+    void handleInteger(Integer event) {
+      monitor.time += event;
+    }
+  }
+
+  interface MyRegistration extends EventRegistration<TestOwner> {}
+
+  private FakeClockMonitor monitor;
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    super.gwtSetUp();
+    monitor = new FakeClockMonitor();
+    eventBus.register(new TestOwner(), (MyRegistration) GWT.create(MyRegistration.class));
+  }
+
+  public void testShouldAggregateMetricsPerHandler() {
+    eventBus.setDispatchMonitor(monitor);
+
+    eventBus.post("a");
+    eventBus.post("abc");
+    eventBus.post(5);
+
+    List<HandlerMetrics> metrics = monitor.getMetrics();
+    assertEquals(2, metrics.size());
+
+    assertEquals(TestOwner.class, metrics.get(0).getOwnerClass());
+    assertEquals("handleString(java.lang.String)", metrics.get(0).getHandlerName());
+    assertEquals(2, metrics.get(0).getInvocationCount());
+    assertEquals(4, metrics.get(0).getTotalMillis());
+    assertEquals(3, metrics.get(0).getMaxMillis());
+
+    assertEquals("handleInteger(java.lang.Integer)", metrics.get(1).getHandlerName());
+    assertEquals(1, metrics.get(1).getInvocationCount());
+    assertEquals(5, metrics.get(1).getTotalMillis());
+  }
+
+  public void testShouldCountFilterRejections() {
+    eventBus.setDispatchMonitor(monitor);
+
+    eventBus.post(-1);
+    eventBus.post(-2);
+    eventBus.post(1);
+
+    HandlerMetrics metrics = monitor.getMetrics().get(0);
+    assertEquals(1, metrics.getInvocationCount());
+    assertEquals(2, metrics.getRejectionCount());
+    assertEquals(1, metrics.getTotalMillis());
+  }
+
+  public void testShouldPassClassesToMonitor() {
+    final List<String> calls = new LinkedList<String>();
+    eventBus.setDispatchMonitor(new DispatchMonitor() {
+      @Override
+      public void beginDispatch(Class<?> ownerClass, String handlerName, Class<?> eventClass) {
+        calls.add("begin " + ownerClass.getName() + " " + eventClass.getName());
+      }
+
+      @Override
+      public void endDispatch(
+          Class<?> ownerClass, String handlerName, Class<?> eventClass, DispatchOutcome outcome) {
+        calls.add("end " + handlerName + " " + outcome);
+      }
+    });
+
+    eventBus.post(-1);
+
+    assertEquals(listOf(
+        "begin " + TestOwner.class.getName() + " java.lang.Integer",
+        "end handleInteger(java.lang.Integer) REJECTED"), calls);
+  }
+
+  public void testShouldStopMonitoringWhenMonitorRemoved() {
+    eventBus.setDispatchMonitor(monitor);
+    eventBus.post("a");
+    eventBus.setDispatchMonitor(null);
+    eventBus.post("a");
+
+    assertEquals(1, monitor.getMetrics().get(0).getInvocationCount());
+  }
+
+  public void testShouldResetMetrics() {
+    eventBus.setDispatchMonitor(monitor);
+    eventBus.post("a");
+    monitor.reset();
+
+    assertTrue(monitor.getMetrics().isEmpty());
+  }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+import com.ekuefler.supereventbus.timing.Throttle;
+import com.google.gwt.core.client.GWT;
+
+import java.util.LinkedList;
+import java.util.List;
+
+public class OwnerGroupTest extends SuperEventBusTestCase {
+
+  class TestOwner {
+    boolean fail = false;
+    boolean consume = false;
+    int delay = 0;
+
+    @Subscribe
+    void handleString(String event) {
+      handled.add(this);
+      time += delay;
+      if (fail) {
+        throw new IllegalStateException();
+      }
+      if (consume) {
+        eventBus.getCurrentDispatch().consume();
+      }
+    }
+  }
+
+  interface MyRegistration extends EventRegistration<TestOwner> {}
+
+  class ThrottledOwner {
+    @Subscribe
+    @Throttle(100)
+    void handleInteger(Integer event) {}
+  }
+
+  interface ThrottledRegistration extends EventRegistration<ThrottledOwner> {}
+
+  private final List<Object> handled = new LinkedList<Object>();
+  private final List<EventBusException> exceptions = new LinkedList<EventBusException>();
+  private long time = 0;
+  private FakeTaskScheduler scheduler;
+  private OwnerGroup<TestOwner> group;
+  private TestOwner owner1;
+  private TestOwner owner2;
+  private TestOwner owner3;
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    super.gwtSetUp();
+    handled.clear();
+    exceptions.clear();
+    eventBus.addExceptionHandler(new ExceptionHandler() {
+      @Override
+      public void handleException(EventBusException e) {
+        exceptions.add(e);
+      }
+    });
+    scheduler = new FakeTaskScheduler();
+    eventBus.setTaskScheduler(scheduler);
+    group = eventBus.createOwnerGroup((MyRegistration) GWT.create(MyRegistration.class));
+    owner1 = new TestOwner();
+    owner2 = new TestOwner();
+    owner3 = new TestOwner();
+    group.add(owner1);
+    group.add(owner2);
+    group.add(owner3);
+  }
+
+  public void testShouldDeliverEventsToOwnersInOrder() {
+    eventBus.post("a");
+
+    assertEquals(listOf(owner1, owner2, owner3), handled);
+    assertEquals(3, group.size());
+    assertEquals(3, eventBus.stats().getOwnerCountsByClass().get(TestOwner.class).intValue());
+    assertEquals(1, eventBus.stats().getLiveHandlerCounts().get(0).intValue());
+  }
+
+  public void testShouldNotDeliverEventsToRemovedOwners() {
+    group.remove(owner2);
+    eventBus.post("a");
+
+    assertEquals(listOf(owner1, owner3), handled);
+    assertEquals(2, group.size());
+    try {
+      group.remove(owner2);
+      fail("Exception not thrown");
+    } catch (IllegalArgumentException expected) {}
+  }
+
+  public void testShouldPreserveOrderWhenGrowingAndCompacting() {
+    List<TestOwner> owners = new LinkedList<TestOwner>();
+    for (int i = 0; i < 100; i++) {
+      TestOwner owner = new TestOwner();
+      owners.add(owner);
+      group.add(owner);
+    }
+    group.remove(owner1);
+    group.remove(owner2);
+    group.remove(owner3);
+    for (int i = 0; i < 60; i++) {
+      group.remove(owners.remove(0));
+    }
+    eventBus.post("a");
+
+    assertEquals(owners, handled);
+    assertEquals(40, group.size());
+  }
+
+  public void testShouldSkipRemainingOwnersWhenEventIsConsumed() {
+    owner2.consume = true;
+    eventBus.post("a");
+
+    assertEquals(listOf(owner1, owner2), handled);
+    assertEquals(1, eventBus.stats().getSkippedHandlerCount());
+  }
+
+  public void testShouldReportFailuresPerOwner() {
+    owner1.fail = true;
+    eventBus.post("a");
+
+    assertEquals(listOf(owner1, owner2, owner3), handled);
+    assertEquals(1, exceptions.size());
+    assertEquals(owner1, exceptions.get(0).getSource());
+    assertTrue(exceptions.get(0).getCause() instanceof IllegalStateException);
+  }
+
+  public void testShouldSuspendFailingOwnersIndividually() {
+    eventBus.setCircuitBreaker(2, 0);
+    owner2.fail = true;
+    eventBus.post("a");
+    eventBus.post("b");
+    eventBus.post("c");
+
+    assertEquals(listOf(owner1, owner2, owner3, owner1, owner2, owner3, owner1, owner3), handled);
+    assertEquals(3, exceptions.size());
+    assertTrue(exceptions.get(2) instanceof HandlerSuspendedException);
+    assertSame(owner2, exceptions.get(2).getSource());
+    assertEquals(1, eventBus.stats().getSuspendedHandlerCount());
+
+    eventBus.resumeHandlers(group);
+    owner2.fail = false;
+    handled.clear();
+    eventBus.post("d");
+
+    assertEquals(listOf(owner1, owner2, owner3), handled);
+    assertEquals(0, eventBus.stats().getSuspendedHandlerCount());
+  }
+
+  public void testShouldForgetStateOfRemovedOwners() {
+    eventBus.setCircuitBreaker(1, 0);
+    owner2.fail = true;
+    eventBus.post("a");
+    assertEquals(1, eventBus.stats().getSuspendedHandlerCount());
+
+    group.remove(owner2);
+    owner2.fail = false;
+    group.add(owner2);
+    handled.clear();
+    eventBus.post("b");
+
+    assertEquals(listOf(owner1, owner3, owner2), handled);
+    assertEquals(0, eventBus.stats().getSuspendedHandlerCount());
+  }
+
+  public void testShouldTimeAndDemoteOwnersIndividually() {
+    SlowHandlerWatchdog watchdog = new SlowHandlerWatchdog(10, 1) {
+      @Override
+      protected long now() {
+        return time;
+      }
+    };
+    watchdog.setDemotionEnabled(true);
+    eventBus.setSlowHandlerWatchdog(watchdog);
+    owner2.delay = 50;
+    eventBus.post("a");
+
+    assertEquals(1, exceptions.size());
+    assertSame(owner2, exceptions.get(0).getSource());
+    assertTrue(((SlowHandlerException) exceptions.get(0)).isDemoted());
+    assertEquals(1, eventBus.stats().getDemotedHandlerCount());
+
+    handled.clear();
+    eventBus.post("b");
+    assertEquals(listOf(owner1, owner3), handled);
+
+    scheduler.advance(0);
+    assertEquals(listOf(owner1, owner3, owner2), handled);
+  }
+
+  public void testShouldPauseWholeGroup() {
+    eventBus.pauseHandlers(group);
+    eventBus.post("a");
+    eventBus.unpauseHandlers(group);
+    eventBus.post("b");
+
+    assertEquals(listOf(owner1, owner2, owner3), handled);
+  }
+
+  public void testShouldUnregisterHandlersWhenGroupIsClosed() {
+    group.close();
+    eventBus.post("a");
+
+    assertTrue(handled.isEmpty());
+    assertTrue(group.isClosed());
+    assertEquals(0, group.size());
+    try {
+      group.add(owner1);
+      fail("Exception not thrown");
+    } catch (IllegalStateException expected) {}
+  }
+
+  public void testShouldRejectDeferredHandlers() {
+    try {
+      eventBus.createOwnerGroup((ThrottledRegistration) GWT.create(ThrottledRegistration.class));
+      fail("Exception not thrown");
+    } catch (IllegalArgumentException expected) {}
+  }
+}
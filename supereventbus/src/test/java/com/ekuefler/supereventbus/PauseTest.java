@@ -0,0 +1,118 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+import com.google.gwt.core.client.GWT;
+
+import java.util.LinkedList;
+import java.util.List;
+
+public class PauseTest extends SuperEventBusTestCase {
+
+  class TestOwner {
+    private final List<Object> events = new LinkedList<Object>();
+
+    @Subscribe
+    void handleString(String event) {
+      events.add(event);
+      if (event.equals("pause")) {
+        eventBus.pauseHandlers(this == owner ? other : owner);
+      }
+    }
+
+    @Subscribe
+    void handleInteger(Integer event) {
+      events.add(event);
+    }
+  }
+
+  interface MyRegistration extends EventRegistration<TestOwner> {}
+
+  private TestOwner owner;
+  private TestOwner other;
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    super.gwtSetUp();
+    owner = new TestOwner();
+    other = new TestOwner();
+    eventBus.register(owner, (MyRegistration) GWT.create(MyRegistration.class));
+    eventBus.register(other, (MyRegistration) GWT.create(MyRegistration.class));
+  }
+
+  public void testShouldSkipPausedHandlers() {
+    eventBus.pauseHandlers(owner);
+
+    eventBus.post("a");
+    eventBus.post(1);
+
+    assertTrue(owner.events.isEmpty());
+    assertEquals(listOf("a", 1), other.events);
+    assertEquals(2, eventBus.stats().getPausedHandlerCount());
+  }
+
+  public void testShouldDeliverEventsAfterUnpausing() {
+    eventBus.pauseHandlers(owner);
+    eventBus.post("a");
+    eventBus.unpauseHandlers(owner);
+    eventBus.post("b");
+
+    assertEquals(listOf("b"), owner.events);
+    assertEquals(0, eventBus.stats().getPausedHandlerCount());
+  }
+
+  public void testShouldNotQueuePausedHandlers() {
+    eventBus.pauseHandlers(owner);
+    eventBus.pauseHandlers(other);
+
+    eventBus.post("a");
+
+    assertEquals(0, eventBus.stats().getPeakQueueLength());
+  }
+
+  public void testShouldSkipHandlersPausedAfterEventWasQueued() {
+    // Whichever handler sees this event first pauses the other object
+    eventBus.post("pause");
+
+    assertEquals(1, owner.events.size() + other.events.size());
+  }
+
+  public void testShouldHandlePausingTwice() {
+    eventBus.pauseHandlers(owner);
+    eventBus.pauseHandlers(owner);
+    eventBus.unpauseHandlers(owner);
+
+    eventBus.post("a");
+
+    assertEquals(listOf("a"), owner.events);
+  }
+
+  public void testShouldForgetPausedStateWhenUnregistered() {
+    eventBus.pauseHandlers(owner);
+    eventBus.unregister(owner);
+
+    assertEquals(0, eventBus.stats().getPausedHandlerCount());
+    try {
+      eventBus.unpauseHandlers(owner);
+      fail("Exception not thrown");
+    } catch (IllegalArgumentException expected) {}
+  }
+
+  public void testShouldNotPauseUnregisteredObjects() {
+    try {
+      eventBus.pauseHandlers(new Object());
+      fail("Exception not thrown");
+    } catch (IllegalArgumentException expected) {}
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+import com.google.gwt.core.client.GWT;
+
+import java.util.LinkedList;
+import java.util.List;
+
+public class ScopeTest extends SuperEventBusTestCase {
+
+  class TestOwner {
+    private final List<Object> events = new LinkedList<Object>();
+
+    @Subscribe
+    void handleString(String event) {
+      events.add(event);
+    }
+
+    @Subscribe
+    void handleInteger(Integer event) {
+      events.add(event);
+    }
+  }
+
+  interface MyRegistration extends EventRegistration<TestOwner> {}
+
+  private RegistrationScope scope;
+  private TestOwner scoped;
+  private TestOwner unscoped;
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    super.gwtSetUp();
+    scope = eventBus.openScope();
+    scoped = new TestOwner();
+    unscoped = new TestOwner();
+    scope.register(scoped, (MyRegistration) GWT.create(MyRegistration.class));
+    eventBus.register(unscoped, (MyRegistration) GWT.create(MyRegistration.class));
+  }
+
+  public void testShouldDeliverEventsToScopedHandlers() {
+    eventBus.post("a");
+
+    assertEquals(listOf("a"), scoped.events);
+    assertEquals(listOf("a"), unscoped.events);
+    assertFalse(scope.isClosed());
+  }
+
+  public void testShouldUnregisterHandlersWhenScopeIsClosed() {
+    eventBus.post("a");
+    eventBus.post(1);
+    scope.close();
+    eventBus.post("b");
+    eventBus.post(2);
+
+    assertTrue(scope.isClosed());
+    assertEquals(listOf("a", 1), scoped.events);
+    assertEquals(listOf("a", 1, "b", 2), unscoped.events);
+    assertEquals(1, eventBus.stats().getOwnerCountsByClass().get(TestOwner.class).intValue());
+  }
+
+  public void testShouldUnregisterHandlersNotYetCached() {
+    scope.close();
+    eventBus.post("a");
+
+    assertTrue(scoped.events.isEmpty());
+    try {
+      eventBus.unregister(scoped);
+      fail("Exception not thrown");
+    } catch (IllegalArgumentException expected) {}
+  }
+
+  public void testShouldCloseScopeAfterOwnerWasUnregistered() {
+    eventBus.unregister(scoped);
+    scope.close();
+    scope.close();
+    eventBus.post("a");
+
+    assertTrue(scoped.events.isEmpty());
+    assertEquals(listOf("a"), unscoped.events);
+  }
+
+  public void testShouldKeepUnscopedRegistrationsOfScopedOwner() {
+    eventBus.register(scoped, (MyRegistration) GWT.create(MyRegistration.class));
+    eventBus.post("a");
+    scope.close();
+    eventBus.post("b");
+
+    assertEquals(listOf("a", "a", "b"), scoped.events);
+  }
+
+  public void testShouldNotRegisterOnClosedScope() {
+    scope.close();
+    try {
+      scope.register(new TestOwner(), (MyRegistration) GWT.create(MyRegistration.class));
+      fail("Exception not thrown");
+    } catch (IllegalStateException expected) {}
+  }
+}
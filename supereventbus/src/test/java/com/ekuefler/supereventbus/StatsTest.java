@@ -0,0 +1,94 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+import com.ekuefler.supereventbus.priority.WithPriority;
+import com.google.gwt.core.client.GWT;
+
+public class StatsTest extends SuperEventBusTestCase {
+
+  static class OwnerA {
+    interface MyRegistration extends EventRegistration<OwnerA> {}
+
+    @Subscribe
+    void handleString(String event) {}
+
+    @Subscribe
+    @WithPriority(5)
+    void handleInteger(Integer event) {}
+  }
+
+  static class OwnerB {
+    interface MyRegistration extends EventRegistration<OwnerB> {}
+
+    @Subscribe
+    void handleObject(Object event) {}
+  }
+
+  private OwnerA a1;
+  private OwnerA a2;
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    super.gwtSetUp();
+    a1 = new OwnerA();
+    a2 = new OwnerA();
+    eventBus.register(a1, (OwnerA.MyRegistration) GWT.create(OwnerA.MyRegistration.class));
+    eventBus.register(a2, (OwnerA.MyRegistration) GWT.create(OwnerA.MyRegistration.class));
+    eventBus.register(
+        new OwnerB(), (OwnerB.MyRegistration) GWT.create(OwnerB.MyRegistration.class));
+  }
+
+  public void testShouldCountHandlersByPriority() {
+    eventBus.unregister(a2);
+
+    EventBusStats stats = eventBus.stats();
+    assertEquals(Integer.valueOf(2), stats.getLiveHandlerCounts().get(0));
+    assertEquals(Integer.valueOf(1), stats.getLiveHandlerCounts().get(5));
+    assertEquals(Integer.valueOf(1), stats.getTombstoneCounts().get(0));
+    assertEquals(Integer.valueOf(1), stats.getTombstoneCounts().get(5));
+  }
+
+  public void testShouldCountOwnersByClass() {
+    EventBusStats stats = eventBus.stats();
+    assertEquals(2, stats.getOwnerCountsByClass().size());
+    assertEquals(Integer.valueOf(2), stats.getOwnerCountsByClass().get(OwnerA.class));
+    assertEquals(Integer.valueOf(1), stats.getOwnerCountsByClass().get(OwnerB.class));
+
+    eventBus.unregister(a1);
+    assertEquals(Integer.valueOf(1), eventBus.stats().getOwnerCountsByClass().get(OwnerA.class));
+  }
+
+  public void testShouldMeasureCache() {
+    assertEquals(0, eventBus.stats().getCacheEntryCount());
+
+    eventBus.post("string");
+    eventBus.post(123);
+    eventBus.post(1.5);
+
+    EventBusStats stats = eventBus.stats();
+    assertEquals(3, stats.getCacheEntryCount());
+    // Three handlers each for String and Integer, and one for Double
+    assertEquals(7, stats.getCachedHandlerCount());
+    assertEquals(3, stats.getLargestCacheEntrySize());
+  }
+
+  public void testShouldEstimateMemory() {
+    int before = eventBus.stats().getEstimatedMemoryBytes();
+    assertTrue(before > 0);
+
+    eventBus.post("string");
+    assertTrue(eventBus.stats().getEstimatedMemoryBytes() > before);
+  }
+}
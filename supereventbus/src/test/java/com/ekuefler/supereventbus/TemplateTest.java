@@ -0,0 +1,163 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+import com.ekuefler.supereventbus.timing.Throttle;
+import com.google.gwt.core.client.GWT;
+
+import java.util.LinkedList;
+import java.util.List;
+
+public class TemplateTest extends SuperEventBusTestCase {
+
+  private final List<Object> handled = new LinkedList<Object>();
+
+  class Service {
+    @Subscribe
+    void handleString(String event) {
+      handled.add("service:" + event);
+      if (event.equals("fail")) {
+        throw new RuntimeException("failed");
+      }
+    }
+  }
+
+  class RequestOwner {
+    private final String name;
+
+    RequestOwner(String name) {
+      this.name = name;
+    }
+
+    @Subscribe
+    void handleString(String event) {
+      handled.add(name + ":" + event);
+    }
+  }
+
+  class ThrottledOwner {
+    @Subscribe
+    @Throttle(100)
+    void handleString(String event) {}
+  }
+
+  interface ServiceRegistration extends EventRegistration<Service> {}
+  interface RequestOwnerRegistration extends EventRegistration<RequestOwner> {}
+  interface ThrottledOwnerRegistration extends EventRegistration<ThrottledOwner> {}
+
+  private EventBusTemplate template;
+  private Service service;
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    super.gwtSetUp();
+    template = new EventBusTemplate();
+    service = new Service();
+    template.register(service, (ServiceRegistration) GWT.create(ServiceRegistration.class));
+    template.warmUp("sample");
+  }
+
+  public void testShouldDeliverEventsToTemplateHandlers() {
+    EventBus bus = template.newBus();
+
+    bus.post("a");
+    bus.post(1);
+
+    assertEquals(listOf("service:a"), handled);
+  }
+
+  public void testShouldKeepRegistrationsOnSeparateBuses() {
+    EventBus first = template.newBus();
+    EventBus second = template.newBus();
+    first.register(new RequestOwner("first"),
+        (RequestOwnerRegistration) GWT.create(RequestOwnerRegistration.class));
+
+    first.post("a");
+    second.post("b");
+
+    assertEquals(listOf("service:a", "first:a", "service:b"), handled);
+  }
+
+  public void testShouldRegisterHandlersAfterCacheWasCopied() {
+    EventBus bus = template.newBus();
+    bus.post("a");
+    RequestOwner owner = new RequestOwner("owner");
+    bus.register(owner, (RequestOwnerRegistration) GWT.create(RequestOwnerRegistration.class));
+    bus.post("b");
+    bus.unregister(owner);
+    bus.post("c");
+
+    assertEquals(listOf("service:a", "service:b", "owner:b", "service:c"), handled);
+  }
+
+  public void testShouldSupportScopesOnCopies() {
+    EventBus bus = template.newBus();
+    RegistrationScope scope = bus.openScope();
+    scope.register(new RequestOwner("scoped"),
+        (RequestOwnerRegistration) GWT.create(RequestOwnerRegistration.class));
+    bus.post("a");
+    scope.close();
+    bus.post("b");
+
+    assertEquals(listOf("service:a", "scoped:a", "service:b"), handled);
+  }
+
+  public void testShouldNotSuspendTemplateHandlers() {
+    EventBus bus = template.newBus();
+    bus.setCircuitBreaker(1, 0);
+
+    bus.post("fail");
+    bus.post("a");
+
+    assertEquals(listOf("service:fail", "service:a"), handled);
+  }
+
+  public void testShouldNotUnregisterTemplateHandlersFromCopies() {
+    EventBus bus = template.newBus();
+    try {
+      bus.unregister(service);
+      fail("Exception not thrown");
+    } catch (IllegalArgumentException expected) {}
+  }
+
+  public void testShouldNotRegisterOnFrozenTemplate() {
+    template.newBus();
+    try {
+      template.register(new Service(), (ServiceRegistration) GWT.create(ServiceRegistration.class));
+      fail("Exception not thrown");
+    } catch (IllegalStateException expected) {}
+  }
+
+  public void testShouldFreezeExplicitly() {
+    template.freeze();
+    template.freeze(); // Has no effect on a frozen template
+    try {
+      template.register(new Service(), (ServiceRegistration) GWT.create(ServiceRegistration.class));
+      fail("Exception not thrown");
+    } catch (IllegalStateException expected) {}
+
+    template.newBus().post("a");
+
+    assertEquals(listOf("service:a"), handled);
+  }
+
+  public void testShouldNotShareDeferredHandlers() {
+    template.register(new ThrottledOwner(),
+        (ThrottledOwnerRegistration) GWT.create(ThrottledOwnerRegistration.class));
+    try {
+      template.newBus();
+      fail("Exception not thrown");
+    } catch (IllegalStateException expected) {}
+  }
+}
@@ -13,6 +13,7 @@
  */
 package com.ekuefler.supereventbus;
 
+import com.ekuefler.supereventbus.jvm.WeakOwnerReferencesTest;
 import com.ekuefler.supereventbus.rebind.EventRegistrationWriterTest;
 
 import org.junit.runner.RunWith;
@@ -21,15 +22,35 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
     BasicTest.class,
+    BatchingTest.class,
     CacheTest.class,
+    CascadeLimitTest.class,
+    CausalityTest.class,
+    ChildBusTest.class,
+    CircuitBreakerTest.class,
+    ConsumeTest.class,
     DeadEventTest.class,
     EventBusAdapterTest.class,
+    EventPriorityTest.class,
     EventRegistrationWriterTest.class,
     ExceptionTest.class,
     FilteringTest.class,
     InheritanceTest.class,
+    LazyPostTest.class,
+    LazyRegistrationTest.class,
+    LeakDetectorTest.class,
+    MonitoringTest.class,
     MultiEventTest.class,
     OrderingTest.class,
+    OwnerGroupTest.class,
+    PauseTest.class,
     PolymorphismTest.class,
-    PriorityTest.class})
+    PriorityTest.class,
+    ScopeTest.class,
+    StatsTest.class,
+    TemplateTest.class,
+    TimingTest.class,
+    TracingTest.class,
+    WatchdogTest.class,
+    WeakOwnerReferencesTest.class})
 public class TestSuite {}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+import com.ekuefler.supereventbus.monitoring.AggregatingDispatchMonitor;
+import com.ekuefler.supereventbus.monitoring.HandlerMetrics;
+import com.ekuefler.supereventbus.timing.Debounce;
+import com.ekuefler.supereventbus.timing.Throttle;
+import com.google.gwt.core.client.GWT;
+
+import java.util.LinkedList;
+import java.util.List;
+
+public class TimingTest extends SuperEventBusTestCase {
+
+  static class TestOwner {
+    interface MyRegistration extends EventRegistration<TestOwner> {}
+
+    private final List<Integer> throttledEvents = new LinkedList<Integer>();
+    private final List<String> debouncedEvents = new LinkedList<String>();
+
+    @Subscribe
+    @Throttle(100)
+    void handleThrottled(Integer event) {
+      throttledEvents.add(event);
+    }
+
+    @Subscribe
+    @Debounce(100)
+    void handleDebounced(String event) {
+      debouncedEvents.add(event);
+    }
+  }
+
+  private FakeTaskScheduler scheduler;
+  private TestOwner owner;
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    super.gwtSetUp();
+    scheduler = new FakeTaskScheduler();
+    eventBus.setTaskScheduler(scheduler);
+    owner = new TestOwner();
+    eventBus.register(owner, (TestOwner.MyRegistration) GWT.create(TestOwner.MyRegistration.class));
+  }
+
+  public void testThrottleShouldHandleFirstEventImmediately() {
+    eventBus.post(1);
+    assertEquals(listOf(1), owner.throttledEvents);
+  }
+
+  public void testThrottleShouldHandleLatestEventWhenIntervalEnds() {
+    eventBus.post(1);
+    eventBus.post(2);
+    eventBus.post(3);
+    assertEquals(listOf(1), owner.throttledEvents);
+
+    scheduler.advance(100);
+    assertEquals(listOf(1, 3), owner.throttledEvents);
+
+    // Handling the trailing event started a new interval
+    eventBus.post(4);
+    assertEquals(listOf(1, 3), owner.throttledEvents);
+    scheduler.advance(100);
+    assertEquals(listOf(1, 3, 4), owner.throttledEvents);
+  }
+
+  public void testThrottleShouldHandleEventImmediatelyAfterQuietInterval() {
+    eventBus.post(1);
+    scheduler.advance(100);
+    eventBus.post(2);
+
+    assertEquals(listOf(1, 2), owner.throttledEvents);
+  }
+
+  public void testThrottleShouldBeTrackedPerOwner() {
+    TestOwner otherOwner = new TestOwner();
+    eventBus.register(
+        otherOwner, (TestOwner.MyRegistration) GWT.create(TestOwner.MyRegistration.class));
+
+    eventBus.post(1);
+
+    assertEquals(listOf(1), owner.throttledEvents);
+    assertEquals(listOf(1), otherOwner.throttledEvents);
+  }
+
+  public void testThrottleShouldOnlyReportRealInvocationsToMonitor() {
+    AggregatingDispatchMonitor monitor = new AggregatingDispatchMonitor();
+    eventBus.setDispatchMonitor(monitor);
+
+    eventBus.post(1);
+    eventBus.post(2);
+    eventBus.post(3);
+    scheduler.advance(100);
+
+    HandlerMetrics metrics = monitor.getMetrics().get(0);
+    assertEquals("handleThrottled(java.lang.Integer)", metrics.getHandlerName());
+    assertEquals(2, metrics.getInvocationCount());
+    assertEquals(2, metrics.getDeferralCount());
+    assertEquals(0, metrics.getRejectionCount());
+  }
+
+  public void testDebounceShouldWaitForQuietInterval() {
+    eventBus.post("a");
+    scheduler.advance(50);
+    eventBus.post("b");
+    scheduler.advance(50);
+    eventBus.post("c");
+    scheduler.advance(99);
+    assertEquals(0, owner.debouncedEvents.size());
+
+    scheduler.advance(1);
+    assertEquals(listOf("c"), owner.debouncedEvents);
+  }
+
+  public void testDebounceShouldOnlyReportRealInvocationsToMonitor() {
+    AggregatingDispatchMonitor monitor = new AggregatingDispatchMonitor();
+    eventBus.setDispatchMonitor(monitor);
+
+    eventBus.post("a");
+    eventBus.post("b");
+    scheduler.advance(100);
+
+    HandlerMetrics metrics = monitor.getMetrics().get(0);
+    assertEquals("handleDebounced(java.lang.String)", metrics.getHandlerName());
+    assertEquals(1, metrics.getInvocationCount());
+    assertEquals(2, metrics.getDeferralCount());
+    assertEquals(0, metrics.getRejectionCount());
+  }
+
+  public void testShouldCancelTimersWhenUnregistered() {
+    eventBus.post(1);
+    eventBus.post(2);
+    eventBus.post("a");
+    eventBus.unregister(owner);
+
+    assertEquals(0, scheduler.getPendingTaskCount());
+    scheduler.advance(100);
+    assertEquals(listOf(1), owner.throttledEvents);
+    assertEquals(0, owner.debouncedEvents.size());
+  }
+}
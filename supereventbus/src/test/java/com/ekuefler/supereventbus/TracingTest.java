@@ -0,0 +1,185 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+import com.ekuefler.supereventbus.filtering.EventFilter;
+import com.ekuefler.supereventbus.filtering.When;
+import com.ekuefler.supereventbus.monitoring.DispatchTrace;
+import com.ekuefler.supereventbus.timing.Throttle;
+import com.google.gwt.core.client.GWT;
+
+public class TracingTest extends SuperEventBusTestCase {
+
+  public static class IsPositive implements EventFilter<Object, Integer> {
+    @Override
+    public boolean accepts(Object handler, Integer event) {
+      return event > 0;
+    }
+  }
+
+  // A trace whose clock advances by one millisecond each time it is read
+  static class FakeClockTrace extends DispatchTrace {
+    int time = 0;
+
+    FakeClockTrace(int capacity) {
+      super(capacity);
+    }
+
+    @Override
+    protected double now() {
+      return time++;
+    }
+  }
+
+  class TestOwner {
+    @Subscribe
+    void handleString(String event) {
+      eventBus.post(event.length());
+    }
+
+    @Subscribe
+    @When(IsPositive.class)
+    void handleInteger(Integer event) {}
+  }
+
+  class ThrottledOwner {
+    @Subscribe
+    @Throttle(100)
+    void handleDouble(Double event) {}
+  }
+
+  interface MyRegistration extends EventRegistration<TestOwner> {}
+  interface ThrottledRegistration extends EventRegistration<ThrottledOwner> {}
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    super.gwtSetUp();
+    eventBus.register(new TestOwner(), (MyRegistration) GWT.create(MyRegistration.class));
+  }
+
+  public void testShouldRecordCascade() {
+    FakeClockTrace trace = new FakeClockTrace(100);
+    eventBus.setDispatchTrace(trace);
+
+    eventBus.post("abc");
+
+    // Post and enqueue for each event, plus begin and end for each handler
+    assertEquals(8, trace.getEntryCount());
+    String owner = TestOwner.class.getName();
+    assertEquals("{\"traceEvents\":["
+        + "{\"name\":\"post\",\"cat\":\"post\",\"ph\":\"i\",\"s\":\"t\",\"ts\":0,\"pid\":1,"
+        + "\"tid\":1,\"args\":{\"event\":\"java.lang.String\"}},"
+        + "{\"name\":\"enqueue\",\"cat\":\"enqueue\",\"ph\":\"i\",\"s\":\"t\",\"ts\":1000,"
+        + "\"pid\":1,\"tid\":1,\"args\":{\"event\":\"java.lang.String\",\"handlers\":1}},"
+        + "{\"name\":\"" + owner + ".handleString(java.lang.String)\",\"cat\":\"handler\","
+        + "\"ph\":\"B\",\"ts\":2000,\"pid\":1,\"tid\":1,\"args\":{\"event\":\"java.lang.String\"}},"
+        + "{\"name\":\"post (re-entrant)\",\"cat\":\"post\",\"ph\":\"i\",\"s\":\"t\",\"ts\":3000,"
+        + "\"pid\":1,\"tid\":1,\"args\":{\"event\":\"java.lang.Integer\"}},"
+        + "{\"name\":\"enqueue\",\"cat\":\"enqueue\",\"ph\":\"i\",\"s\":\"t\",\"ts\":4000,"
+        + "\"pid\":1,\"tid\":1,\"args\":{\"event\":\"java.lang.Integer\",\"handlers\":1}},"
+        + "{\"name\":\"" + owner + ".handleString(java.lang.String)\",\"cat\":\"handler\","
+        + "\"ph\":\"E\",\"ts\":5000,\"pid\":1,\"tid\":1,\"args\":{\"event\":\"java.lang.String\"}},"
+        + "{\"name\":\"" + owner + ".handleInteger(java.lang.Integer)\",\"cat\":\"handler\","
+        + "\"ph\":\"B\",\"ts\":6000,\"pid\":1,\"tid\":1,"
+        + "\"args\":{\"event\":\"java.lang.Integer\"}},"
+        + "{\"name\":\"" + owner + ".handleInteger(java.lang.Integer)\",\"cat\":\"handler\","
+        + "\"ph\":\"E\",\"ts\":7000,\"pid\":1,\"tid\":1,"
+        + "\"args\":{\"event\":\"java.lang.Integer\"}}"
+        + "]}", trace.toChromeTraceJson());
+  }
+
+  public void testShouldRecordFilterRejections() {
+    FakeClockTrace trace = new FakeClockTrace(100);
+    eventBus.setDispatchTrace(trace);
+
+    eventBus.post(-1);
+
+    assertTrue(trace.toChromeTraceJson().contains("\"name\":\"rejected by "
+        + TestOwner.class.getName() + ".handleInteger(java.lang.Integer)\",\"cat\":\"filter\""));
+  }
+
+  public void testShouldRecordDeferrals() {
+    eventBus.setTaskScheduler(new FakeTaskScheduler());
+    eventBus.register(
+        new ThrottledOwner(), (ThrottledRegistration) GWT.create(ThrottledRegistration.class));
+    FakeClockTrace trace = new FakeClockTrace(100);
+    eventBus.setDispatchTrace(trace);
+
+    eventBus.post(1.0);
+    eventBus.post(2.0);
+
+    String json = trace.toChromeTraceJson();
+    assertTrue(json.contains("\"name\":\"deferred by " + ThrottledOwner.class.getName()
+        + ".handleDouble(java.lang.Double)\",\"cat\":\"deferral\""));
+    assertFalse(json.contains("rejected by"));
+  }
+
+  public void testShouldOnlyRetainMostRecentEntries() {
+    FakeClockTrace trace = new FakeClockTrace(3);
+    eventBus.setDispatchTrace(trace);
+
+    eventBus.post("abc");
+
+    assertEquals(3, trace.getEntryCount());
+    assertEquals(5, trace.getDroppedCount());
+    String json = trace.toChromeTraceJson();
+    assertTrue(json.contains("\"ts\":6000"));
+    assertTrue(json.contains("\"ts\":7000"));
+    assertFalse(json.contains("\"ts\":4000"));
+  }
+
+  public void testShouldDropEndsWhoseBeginWasOverwritten() {
+    FakeClockTrace trace = new FakeClockTrace(3);
+    eventBus.setDispatchTrace(trace);
+
+    eventBus.post("abc");
+
+    // The end of handleString is retained but its beginning isn't
+    String json = trace.toChromeTraceJson();
+    assertFalse(json.contains("\"ts\":5000"));
+    assertFalse(json.contains("handleString"));
+    assertTrue(json.contains("\"ph\":\"B\""));
+  }
+
+  public void testShouldClearTrace() {
+    FakeClockTrace trace = new FakeClockTrace(100);
+    eventBus.setDispatchTrace(trace);
+    eventBus.post("abc");
+
+    trace.clear();
+
+    assertEquals(0, trace.getEntryCount());
+    assertEquals("{\"traceEvents\":[]}", trace.toChromeTraceJson());
+  }
+
+  public void testShouldStopRecordingWhenTraceRemoved() {
+    FakeClockTrace trace = new FakeClockTrace(100);
+    eventBus.setDispatchTrace(trace);
+    eventBus.setDispatchTrace(null);
+
+    eventBus.post("abc");
+
+    assertEquals(0, trace.getEntryCount());
+  }
+
+  public void testShouldNotFailWithUserTimingEnabled() {
+    DispatchTrace trace = new DispatchTrace(100);
+    trace.setUserTimingEnabled(true);
+    eventBus.setDispatchTrace(trace);
+
+    eventBus.post("abc");
+
+    assertEquals(8, trace.getEntryCount());
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus;
+
+import com.google.gwt.core.client.GWT;
+
+import java.util.LinkedList;
+import java.util.List;
+
+public class WatchdogTest extends SuperEventBusTestCase {
+
+  // A watchdog whose clock only advances when handlers tell it to
+  static class FakeClockWatchdog extends SlowHandlerWatchdog {
+    long time = 0;
+
+    FakeClockWatchdog(int budgetMillis, int strikeLimit) {
+      super(budgetMillis, strikeLimit);
+    }
+
+    @Override
+    protected long now() {
+      return time;
+    }
+  }
+
+  class SlowOwner {
+    @Subscribe
+    void handleInteger(Integer event) {
+      watchdog.time += event;
+      handled.add("slow " + event);
+    }
+  }
+
+  class FastOwner {
+    @Subscribe
+    void handleInteger(Integer event) {
+      handled.add("fast " + event);
+    }
+  }
+
+  interface SlowRegistration extends EventRegistration<SlowOwner> {}
+  interface FastRegistration extends EventRegistration<FastOwner> {}
+
+  private FakeTaskScheduler scheduler;
+  private FakeClockWatchdog watchdog;
+  private SlowOwner slowOwner;
+  private List<String> handled;
+  private List<EventBusException> exceptions;
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    super.gwtSetUp();
+    scheduler = new FakeTaskScheduler();
+    eventBus.setTaskScheduler(scheduler);
+    watchdog = new FakeClockWatchdog(10, 2);
+    eventBus.setSlowHandlerWatchdog(watchdog);
+    handled = new LinkedList<String>();
+    slowOwner = new SlowOwner();
+    eventBus.register(slowOwner, (SlowRegistration) GWT.create(SlowRegistration.class));
+    eventBus.register(new FastOwner(), (FastRegistration) GWT.create(FastRegistration.class));
+    exceptions = new LinkedList<EventBusException>();
+    eventBus.addExceptionHandler(new ExceptionHandler() {
+      @Override
+      public void handleException(EventBusException e) {
+        exceptions.add(e);
+      }
+    });
+  }
+
+  public void testShouldReportHandlerAfterRepeatedlyExceedingBudget() {
+    eventBus.post(50);
+    assertTrue(exceptions.isEmpty());
+
+    eventBus.post(5); // Within budget
+    eventBus.post(60);
+
+    assertEquals(1, exceptions.size());
+    SlowHandlerException e = (SlowHandlerException) exceptions.get(0);
+    assertSame(slowOwner, e.getSource());
+    assertEquals(60, e.getEvent());
+    assertEquals("handleInteger(java.lang.Integer)", e.getHandlerName());
+    assertEquals(60, e.getElapsedMillis());
+    assertEquals(10, e.getBudgetMillis());
+    assertEquals(2, e.getSlowInvocationCount());
+    assertFalse(e.isDemoted());
+
+    EventBusStats stats = eventBus.stats();
+    assertEquals(2, stats.getSlowInvocationCount());
+    assertEquals(1, stats.getSlowHandlerCount());
+    assertEquals(0, stats.getDemotedHandlerCount());
+  }
+
+  public void testShouldOnlyReportHandlerOnce() {
+    eventBus.post(50);
+    eventBus.post(50);
+    eventBus.post(50);
+
+    assertEquals(1, exceptions.size());
+  }
+
+  public void testShouldNotDemoteByDefault() {
+    eventBus.post(50);
+    eventBus.post(50);
+    handled.clear();
+
+    eventBus.post(50);
+
+    assertEquals(2, handled.size());
+  }
+
+  public void testShouldDemoteSlowHandlers() {
+    watchdog.setDemotionEnabled(true);
+    eventBus.post(50);
+    eventBus.post(50);
+    assertTrue(((SlowHandlerException) exceptions.get(0)).isDemoted());
+    assertEquals(1, eventBus.stats().getDemotedHandlerCount());
+    handled.clear();
+
+    eventBus.post(1);
+    eventBus.post(2);
+    assertEquals(listOf("fast 1", "fast 2"), handled);
+
+    scheduler.advance(0);
+    assertEquals(listOf("fast 1", "fast 2", "slow 1", "slow 2"), handled);
+    assertEquals(2, eventBus.stats().getDemotedInvocationCount());
+  }
+
+  public void testShouldRestoreDemotedHandlers() {
+    watchdog.setDemotionEnabled(true);
+    eventBus.post(50);
+    eventBus.post(50);
+    handled.clear();
+
+    eventBus.resumeHandlers(slowOwner);
+    eventBus.post(1);
+
+    assertEquals(2, handled.size());
+    assertEquals(0, eventBus.stats().getDemotedHandlerCount());
+  }
+
+  public void testShouldStopTimingWhenWatchdogRemoved() {
+    eventBus.setSlowHandlerWatchdog(null);
+    eventBus.post(50);
+    eventBus.post(50);
+
+    assertTrue(exceptions.isEmpty());
+    assertEquals(0, eventBus.stats().getSlowInvocationCount());
+  }
+}
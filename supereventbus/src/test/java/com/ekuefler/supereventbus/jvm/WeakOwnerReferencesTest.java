@@ -0,0 +1,142 @@
+/*
+ * Copyright 2013 Erik Kuefler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.ekuefler.supereventbus.jvm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import com.ekuefler.supereventbus.EventBus;
+import com.ekuefler.supereventbus.EventRegistration;
+import com.ekuefler.supereventbus.impl.EventHandlerMethod;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for {@link WeakOwnerReferences}. These run on the JVM rather than as GWT tests, since GWT
+ * doesn't support weak references. Registrations are written by hand since there is no generator.
+ */
+public class WeakOwnerReferencesTest {
+
+  static class TestOwner {
+    final List<String> events = new ArrayList<String>();
+  }
+
+  static class TestRegistration implements EventRegistration<TestOwner> {
+    @Override
+    public List<EventHandlerMethod<TestOwner, ?>> getMethods() {
+      EventHandlerMethod<TestOwner, String> method = new EventHandlerMethod<TestOwner, String>() {
+        @Override
+        public boolean invoke(TestOwner instance, String arg) {
+          instance.events.add(arg);
+          return true;
+        }
+
+        @Override
+        public boolean acceptsArgument(Object arg) {
+          return arg instanceof String;
+        }
+
+        @Override
+        public int getDispatchOrder() {
+          return 0;
+        }
+
+        @Override
+        public String getName() {
+          return "handleString(String)";
+        }
+      };
+      return Collections.<EventHandlerMethod<TestOwner, ?>>singletonList(method);
+    }
+  }
+
+  private EventBus eventBus;
+
+  @Before
+  public void setUp() {
+    eventBus = new EventBus();
+    eventBus.setOwnerReferences(new WeakOwnerReferences());
+  }
+
+  @Test
+  public void shouldDeliverEventsToWeaklyHeldOwners() {
+    TestOwner owner = new TestOwner();
+    eventBus.register(owner, new TestRegistration());
+
+    eventBus.post("a");
+
+    assertEquals(Collections.singletonList("a"), owner.events);
+  }
+
+  @Test
+  public void shouldUnregisterWeaklyHeldOwners() {
+    TestOwner owner = new TestOwner();
+    eventBus.register(owner, new TestRegistration());
+    eventBus.pauseHandlers(owner);
+    eventBus.unpauseHandlers(owner);
+    eventBus.unregister(owner);
+
+    eventBus.post("a");
+
+    assertEquals(0, owner.events.size());
+    try {
+      eventBus.unregister(owner);
+      fail("Exception not thrown");
+    } catch (IllegalArgumentException expected) {}
+  }
+
+  @Test
+  public void shouldRemoveHandlersOfCollectedOwners() throws Exception {
+    TestOwner survivor = new TestOwner();
+    eventBus.register(survivor, new TestRegistration());
+    WeakReference<TestOwner> collected = registerUnreachableOwner();
+    eventBus.post("a");
+
+    // Keep collecting garbage and posting until the bus notices the owner is gone
+    for (int i = 0; i < 100 && eventBus.stats().getCollectedOwnerCount() == 0; i++) {
+      System.gc();
+      Thread.sleep(10);
+      eventBus.post("b");
+    }
+
+    assertNull(collected.get());
+    assertEquals(1, eventBus.stats().getCollectedOwnerCount());
+    assertEquals(1, eventBus.stats().getOwnerCountsByClass().get(TestOwner.class).intValue());
+    assertEquals(1, eventBus.stats().getCachedHandlerCount());
+    assertEquals("a", survivor.events.get(0));
+  }
+
+  @Test
+  public void shouldNotChangeOwnerReferencesAfterRegistering() {
+    eventBus.register(new TestOwner(), new TestRegistration());
+    try {
+      eventBus.setOwnerReferences(null);
+      fail("Exception not thrown");
+    } catch (IllegalStateException expected) {}
+  }
+
+  // Registers an owner that isn't referenced from anywhere else
+  private WeakReference<TestOwner> registerUnreachableOwner() {
+    TestOwner owner = new TestOwner();
+    eventBus.register(owner, new TestRegistration());
+    return new WeakReference<TestOwner>(owner);
+  }
+}
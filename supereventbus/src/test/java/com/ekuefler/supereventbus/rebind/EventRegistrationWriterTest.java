@@ -15,23 +15,31 @@ package com.ekuefler.supereventbus.rebind;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import com.ekuefler.supereventbus.Subscribe;
+import com.ekuefler.supereventbus.batching.BatchWindow;
 import com.ekuefler.supereventbus.filtering.EventFilter;
 import com.ekuefler.supereventbus.filtering.When;
 import com.ekuefler.supereventbus.multievent.EventTypes;
 import com.ekuefler.supereventbus.multievent.MultiEvent;
 import com.ekuefler.supereventbus.priority.WithPriority;
+import com.ekuefler.supereventbus.timing.Debounce;
+import com.ekuefler.supereventbus.timing.Throttle;
 import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.core.ext.UnableToCompleteException;
 import com.google.gwt.core.ext.typeinfo.JClassType;
 import com.google.gwt.core.ext.typeinfo.JMethod;
 import com.google.gwt.core.ext.typeinfo.JParameter;
+import com.google.gwt.core.ext.typeinfo.JParameterizedType;
 import com.google.gwt.core.ext.typeinfo.JType;
 import com.google.gwt.user.rebind.StringSourceWriter;
 
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
@@ -67,9 +75,10 @@ public class EventRegistrationWriterTest {
         "public List<EventHandlerMethod<MyType, ?>> getMethods() {",
         "  List<EventHandlerMethod<MyType, ?>> methods = "
             + "new LinkedList<EventHandlerMethod<MyType, ?>>();",
-        "  methods.add(new EventHandlerMethod<MyType, MyEvent>() {",
-        "    public void invoke(MyType instance, MyEvent arg) {",
+        "  methods.add(new ClassBasedEventHandlerMethod<MyType, MyEvent>() {",
+        "    public boolean invoke(MyType instance, MyEvent arg) {",
         "      instance.myMethod(arg);",
+        "      return true;",
         "    }",
         "    public boolean acceptsArgument(Object arg) {",
         "      return arg instanceof MyEvent;",
@@ -77,6 +86,18 @@ public class EventRegistrationWriterTest {
         "    public int getDispatchOrder() {",
         "      return 0;",
         "    }",
+        "    public String getName() {",
+        "      return \"myMethod(MyEvent)\";",
+        "    }",
+        "    public Object getMatchingKey() {",
+        "      return getClass();",
+        "    }",
+        "    public Class<?> getEventType() {",
+        "      return MyEvent.class;",
+        "    }",
+        "    public Class<?>[] getEventTypeHierarchy() {",
+        "      return null;",
+        "    }",
         "  });",
         "  return methods;",
         "}"), output.toString());
@@ -99,10 +120,12 @@ public class EventRegistrationWriterTest {
     writer.writeGetMethods(target, output);
 
     assertContains(join(
-        "    public void invoke(MyType instance, MyEvent arg) {",
+        "    public boolean invoke(MyType instance, MyEvent arg) {",
         ("      if (new %s.Filter1().accepts(instance, arg) "
-            + "&& new %s.Filter2().accepts(instance, arg)) { instance.myMethod(arg); }")
+            + "&& new %s.Filter2().accepts(instance, arg)) "
+            + "{ instance.myMethod(arg); return true; }")
             .replaceAll("%s", EventRegistrationWriterTest.class.getCanonicalName()),
+        "      return false;",
         "    }"), output.toString());
   }
 
@@ -140,23 +163,128 @@ public class EventRegistrationWriterTest {
     writer.writeGetMethods(target, output);
 
     assertContains(join(
-        "  methods.add(new EventHandlerMethod<MyType, java.lang.String>() {",
-        "    public void invoke(MyType instance, java.lang.String arg) {",
+        "  methods.add(new ClassBasedEventHandlerMethod<MyType, java.lang.String>() {",
+        "    public boolean invoke(MyType instance, java.lang.String arg) {",
         "      instance.myMethod(new MultiEvent(arg));",
+        "      return true;",
         "    }",
         "    public boolean acceptsArgument(Object arg) {",
         "      return arg instanceof java.lang.String;",
         "    }"), output.toString());
     assertContains(join(
-        "  methods.add(new EventHandlerMethod<MyType, java.lang.Integer>() {",
-        "    public void invoke(MyType instance, java.lang.Integer arg) {",
+        "  methods.add(new ClassBasedEventHandlerMethod<MyType, java.lang.Integer>() {",
+        "    public boolean invoke(MyType instance, java.lang.Integer arg) {",
         "      instance.myMethod(new MultiEvent(arg));",
+        "      return true;",
         "    }",
         "    public boolean acceptsArgument(Object arg) {",
         "      return arg instanceof java.lang.Integer;",
         "    }"), output.toString());
   }
 
+  @Test
+  public void shouldWriteBatchedHandler() throws Exception {
+    JParameter param = mock(JParameter.class);
+    BatchWindow windowAnnotation = newBatchWindow(10, 100);
+    when(param.getAnnotation(BatchWindow.class)).thenReturn(windowAnnotation);
+
+    JMethod method = newSubscribeMethod("myMethod", newListType(newEventType("MyEvent")));
+    when(method.getParameters()).thenReturn(new JParameter[] {param});
+    when(target.getInheritableMethods()).thenReturn(new JMethod[] {method});
+    when(target.getQualifiedSourceName()).thenReturn("MyType");
+
+    writer.writeGetMethods(target, output);
+
+    assertContains(join(
+        "  methods.add(new BatchingEventHandlerMethod<MyType, MyEvent>(10, 100, "
+            + "new ClassBasedEventHandlerMethod<MyType, List<MyEvent>>() {",
+        "    public boolean invoke(MyType instance, List<MyEvent> arg) {",
+        "      instance.myMethod(arg);",
+        "      return true;",
+        "    }",
+        "    public boolean acceptsArgument(Object arg) {",
+        "      return arg instanceof MyEvent;",
+        "    }",
+        "    public int getDispatchOrder() {",
+        "      return 0;",
+        "    }",
+        "    public String getName() {",
+        "      return \"myMethod(List<MyEvent>)\";",
+        "    }",
+        "    public Object getMatchingKey() {",
+        "      return getClass();",
+        "    }",
+        "    public Class<?> getEventType() {",
+        "      return MyEvent.class;",
+        "    }",
+        "    public Class<?>[] getEventTypeHierarchy() {",
+        "      return null;",
+        "    }",
+        "  }));"), output.toString());
+  }
+
+  @Test
+  public void shouldWriteThrottledHandler() throws Exception {
+    Throttle throttleAnnotation = mock(Throttle.class);
+    when(throttleAnnotation.value()).thenReturn(100);
+
+    JMethod method = newSubscribeMethod("myMethod", newEventType("MyEvent"));
+    when(method.getAnnotation(Throttle.class)).thenReturn(throttleAnnotation);
+    when(target.getInheritableMethods()).thenReturn(new JMethod[] {method});
+    when(target.getQualifiedSourceName()).thenReturn("MyType");
+
+    writer.writeGetMethods(target, output);
+
+    assertContains(join(
+        "  methods.add(new ThrottledEventHandlerMethod<MyType, MyEvent>(100, "
+            + "new ClassBasedEventHandlerMethod<MyType, MyEvent>() {",
+        "    public boolean invoke(MyType instance, MyEvent arg) {",
+        "      instance.myMethod(arg);",
+        "      return true;",
+        "    }"), output.toString());
+    assertContains("  }));", output.toString());
+  }
+
+  @Test
+  public void shouldWriteDebouncedHandler() throws Exception {
+    Debounce debounceAnnotation = mock(Debounce.class);
+    when(debounceAnnotation.value()).thenReturn(250);
+
+    JMethod method = newSubscribeMethod("myMethod", newEventType("MyEvent"));
+    when(method.getAnnotation(Debounce.class)).thenReturn(debounceAnnotation);
+    when(target.getInheritableMethods()).thenReturn(new JMethod[] {method});
+    when(target.getQualifiedSourceName()).thenReturn("MyType");
+
+    writer.writeGetMethods(target, output);
+
+    assertContains("  methods.add(new DebouncedEventHandlerMethod<MyType, MyEvent>(250, "
+        + "new ClassBasedEventHandlerMethod<MyType, MyEvent>() {", output.toString());
+  }
+
+  @Test
+  public void shouldWriteEventTypeHierarchy() throws Exception {
+    JClassType eventType = newEventType("MyEvent");
+    JClassType superclass = newEventType("java.lang.Object");
+    JClassType iface = newEventType("MyInterface");
+    when(eventType.isClass()).thenReturn(eventType);
+    when(eventType.isPublic()).thenReturn(true);
+    when(superclass.isPublic()).thenReturn(true);
+    when(iface.isPublic()).thenReturn(true);
+    doReturn(new LinkedHashSet<JClassType>(Arrays.asList(eventType, superclass, iface)))
+        .when(eventType).getFlattenedSupertypeHierarchy();
+
+    JMethod method = newSubscribeMethod("myMethod", eventType);
+    when(target.getInheritableMethods()).thenReturn(new JMethod[] {method});
+    when(target.getQualifiedSourceName()).thenReturn("MyType");
+
+    writer.writeGetMethods(target, output);
+
+    assertContains(join(
+        "    public Class<?>[] getEventTypeHierarchy() {",
+        "      return new Class<?>[] {MyEvent.class, MyInterface.class, java.lang.Object.class};",
+        "    }"), output.toString());
+  }
+
   @Test(expected = UnableToCompleteException.class)
   public void shouldFailOnSubscribeMethodWithZeroArgs() throws Exception {
     JMethod method = mock(JMethod.class);
@@ -240,6 +368,59 @@ public class EventRegistrationWriterTest {
     writer.writeGetMethods(target, output);
   }
 
+  @Test(expected = UnableToCompleteException.class)
+  public void shouldFailOnBatchWindowOnNonListParameter() throws Exception {
+    JParameter param = mock(JParameter.class);
+    BatchWindow windowAnnotation = newBatchWindow(10, 0);
+    when(param.getAnnotation(BatchWindow.class)).thenReturn(windowAnnotation);
+
+    JMethod method = newSubscribeMethod("myMethod", newEventType("MyEvent"));
+    when(method.getParameters()).thenReturn(new JParameter[] {param});
+    when(target.getInheritableMethods()).thenReturn(new JMethod[] {method});
+
+    writer.writeGetMethods(target, output);
+  }
+
+  @Test(expected = UnableToCompleteException.class)
+  public void shouldFailOnBatchWindowWithoutLimits() throws Exception {
+    JParameter param = mock(JParameter.class);
+    BatchWindow windowAnnotation = newBatchWindow(0, 0);
+    when(param.getAnnotation(BatchWindow.class)).thenReturn(windowAnnotation);
+
+    JMethod method = newSubscribeMethod("myMethod", newListType(newEventType("MyEvent")));
+    when(method.getParameters()).thenReturn(new JParameter[] {param});
+    when(target.getInheritableMethods()).thenReturn(new JMethod[] {method});
+
+    writer.writeGetMethods(target, output);
+  }
+
+  @Test(expected = UnableToCompleteException.class)
+  public void shouldFailOnThrottledAndDebouncedMethod() throws Exception {
+    Throttle throttleAnnotation = mock(Throttle.class);
+    when(throttleAnnotation.value()).thenReturn(100);
+    Debounce debounceAnnotation = mock(Debounce.class);
+    when(debounceAnnotation.value()).thenReturn(100);
+
+    JMethod method = newSubscribeMethod("myMethod", newEventType("MyEvent"));
+    when(method.getAnnotation(Throttle.class)).thenReturn(throttleAnnotation);
+    when(method.getAnnotation(Debounce.class)).thenReturn(debounceAnnotation);
+    when(target.getInheritableMethods()).thenReturn(new JMethod[] {method});
+
+    writer.writeGetMethods(target, output);
+  }
+
+  @Test(expected = UnableToCompleteException.class)
+  public void shouldFailOnNonPositiveThrottleInterval() throws Exception {
+    Throttle throttleAnnotation = mock(Throttle.class);
+    when(throttleAnnotation.value()).thenReturn(0);
+
+    JMethod method = newSubscribeMethod("myMethod", newEventType("MyEvent"));
+    when(method.getAnnotation(Throttle.class)).thenReturn(throttleAnnotation);
+    when(target.getInheritableMethods()).thenReturn(new JMethod[] {method});
+
+    writer.writeGetMethods(target, output);
+  }
+
   private JMethod newSubscribeMethod(String name, JType paramType) {
     JMethod method = mock(JMethod.class);
     when(method.getName()).thenReturn(name);
@@ -249,12 +430,27 @@ public class EventRegistrationWriterTest {
     return method;
   }
 
-  private JType newEventType(String name) {
-    JType paramType = mock(JType.class);
+  private JClassType newEventType(String name) {
+    JClassType paramType = mock(JClassType.class);
     when(paramType.getQualifiedSourceName()).thenReturn(name);
     return paramType;
   }
 
+  private JParameterizedType newListType(JClassType elementType) {
+    JParameterizedType listType = mock(JParameterizedType.class);
+    when(listType.getQualifiedSourceName()).thenReturn("java.util.List");
+    when(listType.isParameterized()).thenReturn(listType);
+    when(listType.getTypeArgs()).thenReturn(new JClassType[] {elementType});
+    return listType;
+  }
+
+  private BatchWindow newBatchWindow(int count, int millis) {
+    BatchWindow windowAnnotation = mock(BatchWindow.class);
+    when(windowAnnotation.count()).thenReturn(count);
+    when(windowAnnotation.millis()).thenReturn(millis);
+    return windowAnnotation;
+  }
+
   private static String join(String... strings) {
     StringBuilder result = new StringBuilder();
     for(String string : strings) {